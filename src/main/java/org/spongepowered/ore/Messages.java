@@ -36,6 +36,11 @@ public final class Messages {
     public static final Text DESCRIPTION_SHOW = Text.of("Display information about a plugin.");
     public static final Text DESCRIPTION_DESCRIBE = Text.of("Displays the description of the plugin.");
     public static final Text DESCRIPTION_CONFIRM = Text.of("Confirms some pending action.");
+    public static final Text DESCRIPTION_STATS = Text.of("Displays how fast the repositories answer.");
+    public static final Text DESCRIPTION_BUNDLE = Text.of("Moves plugins to servers that cannot reach Ore.");
+    public static final Text DESCRIPTION_BUNDLE_EXPORT = Text.of("Packs plugins and their dependencies into a file.");
+    public static final Text DESCRIPTION_BUNDLE_IMPORT = Text.of("Installs the plugins packed into a file.");
+    public static final Text DESCRIPTION_ROLLBACK = Text.of("Undoes the last changes made to the mods directory.");
 
     // Messages
     public static final TextTemplate INSTALLING = of(YELLOW, "Installing plugin ", PLUGIN_ID, "...");
@@ -54,6 +59,8 @@ public final class Messages {
     public static final TextTemplate RECOMMENDED_VERSION = of(YELLOW, "Recommended: ", CONTENT);
     public static final TextTemplate LOADED = of(YELLOW, "Loaded: ", CONTENT);
     public static final TextTemplate LOCATION = of(YELLOW, "Location: ", CONTENT);
+    public static final TextTemplate REPOSITORY = of(YELLOW, arg("url").color(GREEN), ": ", CONTENT);
+    public static final TextTemplate LOOKUPS = of(YELLOW, "Lookups: ", CONTENT);
 
     public static final Text NOT_INSTALLED = Text.of(RED, "Not installed");
     public static final Text YES = Text.of("Yes");
@@ -74,10 +81,25 @@ public final class Messages {
         GREEN, "Download for ", PLUGIN_ID, " complete.",
         of(NEW_LINE, YELLOW, "Restart the server to complete "), arg("phase"), '.');
 
+    public static final TextTemplate BUNDLE_EXPORTED = of(
+        GREEN, "Packed ", CONTENT, " plugins into ", arg("file").color(GRAY), ".");
+
+    public static final TextTemplate BUNDLE_IMPORTED = of(
+        GREEN, "Installed ", CONTENT, " plugins from the bundle.",
+        of(NEW_LINE, YELLOW, "Restart the server to complete installation."));
+
     public static final TextTemplate REMOVAL = of(
         GREEN, "Uninstalled plugin ", PLUGIN_ID, ".",
         of(NEW_LINE, YELLOW, "Restart the server to complete removal."));
 
+    public static final TextTemplate ROLLBACK_SCHEDULED = of(
+        GREEN, "Rolling back the mods directory to snapshot ", CONTENT, ".",
+        of(NEW_LINE, YELLOW, "Restart the server to complete rollback."));
+
+    public static final Text ROLLBACK_CANCELLED = Text.of(GREEN, "Rollback cancelled.");
+
+    public static final TextTemplate SNAPSHOTS = of(YELLOW, "Snapshots, newest first: ", CONTENT);
+
     public static final TextTemplate USER_NOT_FOUND = of(
         RED, "User ", arg("username").color(GRAY).style(ITALIC), " not found.");
 
@@ -0,0 +1,241 @@
+package org.spongepowered.ore;
+
+import static org.spongepowered.ore.client.OreClient.VERSION_RECOMMENDED;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.spongepowered.ore.client.OreClient;
+import org.spongepowered.ore.client.PluginMetadataScanner;
+import org.spongepowered.ore.client.ScannedPluginEnvironment;
+import org.spongepowered.ore.client.SpongeOreClient;
+import org.spongepowered.ore.client.exception.NoUpdateAvailableException;
+import org.spongepowered.ore.client.exception.OreException;
+import org.spongepowered.ore.config.OreConfig;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Installs plugins from Ore into a mods directory without starting a
+ * server, such as while building a server image. Plugins already in the
+ * directory are read from their plugin metadata: missing plugins are
+ * installed, present ones are brought to the requested version and pending
+ * updates are applied before exiting. The mods directory can also be rolled
+ * back to a snapshot first, such as when an update keeps the server from
+ * starting.
+ *
+ * <pre>
+ * java -cp OrePlugin.jar:spongeapi-shaded.jar org.spongepowered.ore.OreProvisioner
+ *     [--config ore.conf] [--mods mods] [--api-version 5.1.0] plugin[@version]...
+ * </pre>
+ */
+public final class OreProvisioner {
+
+    private static final String DEFAULT_CONFIG = "/assets/ore/default.conf";
+    private static final String USAGE = "Usage: OreProvisioner [options] <plugin[@version]>...\n"
+        + "  --config <file>            Ore config to use instead of the default one\n"
+        + "  --mods <dir>               Directory to install to instead of installationDirectory\n"
+        + "  --api-version <version>    SpongeAPI version of the server, not checked if omitted\n"
+        + "  --bundle <file>            Install the plugins of a bundle first\n"
+        + "  --rollback <snapshot>      Restore the mods directory to a snapshot first, \"latest\" for the newest\n"
+        + "  --no-dependencies          Do not install the dependencies of plugins\n"
+        + "  --ignore-platform-version  Install plugins made for other SpongeAPI versions";
+
+    private Path configPath;
+    private Path modsDir;
+    private String apiVersion;
+    private Path bundle;
+    private String rollback;
+    private boolean installDependencies = true;
+    private boolean ignorePlatformVersion;
+    private final Map<String, String> plugins = new LinkedHashMap<>();
+
+    private OreProvisioner() {}
+
+    public static void main(String[] args) {
+        OreProvisioner provisioner = new OreProvisioner();
+        if (!provisioner.parse(args)) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        System.exit(provisioner.run() ? 0 : 1);
+    }
+
+    private boolean parse(String[] args) {
+        Iterator<String> iter = Arrays.asList(args).iterator();
+        while (iter.hasNext()) {
+            String arg = iter.next();
+            if (!arg.startsWith("--")) {
+                int separator = arg.indexOf('@');
+                if (separator == -1)
+                    this.plugins.put(arg, VERSION_RECOMMENDED);
+                else
+                    this.plugins.put(arg.substring(0, separator), arg.substring(separator + 1));
+                continue;
+            }
+
+            switch (arg) {
+                case "--no-dependencies":
+                    this.installDependencies = false;
+                    continue;
+                case "--ignore-platform-version":
+                    this.ignorePlatformVersion = true;
+                    continue;
+            }
+
+            if (!iter.hasNext())
+                return false;
+            String value = iter.next();
+            switch (arg) {
+                case "--config":
+                    this.configPath = Paths.get(value);
+                    break;
+                case "--mods":
+                    this.modsDir = Paths.get(value);
+                    break;
+                case "--api-version":
+                    this.apiVersion = value;
+                    break;
+                case "--bundle":
+                    this.bundle = Paths.get(value);
+                    break;
+                case "--rollback":
+                    this.rollback = value;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return !this.plugins.isEmpty() || this.bundle != null || this.rollback != null;
+    }
+
+    private boolean run() {
+        ConfigurationNode root;
+        try {
+            OreConfig config = new OreConfig();
+            if (this.configPath != null)
+                config.load(this.configPath.toUri().toURL());
+            else
+                config.load(getDefaultConfig());
+            root = config.getRoot();
+            if (this.modsDir != null)
+                root.getNode("installationDirectory").setValue(this.modsDir.toString());
+            if (!root.getNode("autoResolveDependencies").getBoolean(true))
+                this.installDependencies = false;
+        } catch (IOException e) {
+            System.err.println("Failed to load the Ore client settings: " + e);
+            return false;
+        }
+
+        if (this.rollback != null) {
+            if (!rollback(root))
+                return false;
+            if (this.plugins.isEmpty() && this.bundle == null)
+                return true;
+        }
+
+        SpongeOreClient client = createClient(root);
+        if (client == null)
+            return false;
+
+        boolean success = true;
+        if (this.bundle != null) {
+            try {
+                int imported = client.importBundle(this.bundle, this.ignorePlatformVersion);
+                System.out.println("Installed " + imported + " plugin(s) from " + this.bundle + ".");
+            } catch (IOException | OreException e) {
+                System.err.println("Failed to install " + this.bundle + ": " + getMessage(e));
+                success = false;
+            }
+        }
+
+        for (Map.Entry<String, String> plugin : this.plugins.entrySet()) {
+            try {
+                provision(client, plugin.getKey(), plugin.getValue());
+            } catch (IOException | OreException e) {
+                System.err.println("Failed to install " + plugin.getKey() + ": " + getMessage(e));
+                success = false;
+            }
+        }
+
+        try {
+            // Nothing is running, so updates and changes left over by a
+            // server that ran out of time stopping can be applied right away
+            if (client.hasUninstalledUpdates() || client.hasPendingUninstallations())
+                client.applyPending(PluginMetadataScanner.DEFAULT_PARALLELISM, 0);
+        } catch (IOException e) {
+            System.err.println("Failed to apply updates: " + e);
+            return false;
+        } finally {
+            client.close();
+        }
+        return success;
+    }
+
+    private boolean rollback(ConfigurationNode root) {
+        SpongeOreClient client = createClient(root);
+        if (client == null)
+            return false;
+        try {
+            client.rollback(this.rollback.equals("latest") ? null : this.rollback);
+            client.applyPending(1, 0);
+            return true;
+        } catch (IOException | OreException e) {
+            System.err.println("Failed to roll back the mods directory: " + getMessage(e));
+            return false;
+        } finally {
+            client.close();
+        }
+    }
+
+    private SpongeOreClient createClient(ConfigurationNode root) {
+        try {
+            Path modsDir = Paths.get(root.getNode("installationDirectory").getString("mods"));
+            ScannedPluginEnvironment environment = ScannedPluginEnvironment.scan(modsDir, this.apiVersion);
+            SpongeOreClient client = SpongeOreClient.fromConfig(root, environment);
+            client.setMessenger(System.out::println);
+            // Finish what an interrupted run left staged
+            client.recoverPending();
+            return client;
+        } catch (IOException | ObjectMappingException e) {
+            System.err.println("Failed to load the Ore client settings: " + e);
+            return null;
+        }
+    }
+
+    private void provision(OreClient client, String id, String version) throws IOException {
+        if (!client.isInstalled(id)) {
+            client.installPlugin(id, version, this.installDependencies, this.ignorePlatformVersion);
+            return;
+        }
+
+        String installed = client.getInstallation(id).get().getVersion();
+        if (version.equals(installed)) {
+            System.out.println(id + " " + installed + " is already installed.");
+            return;
+        }
+        try {
+            client.updatePlugin(id, version);
+        } catch (NoUpdateAvailableException e) {
+            System.out.println(id + " " + installed + " is up to date.");
+        }
+    }
+
+    private static URL getDefaultConfig() throws IOException {
+        URL url = OreProvisioner.class.getResource(DEFAULT_CONFIG);
+        if (url == null)
+            throw new IOException("default config not found");
+        return url;
+    }
+
+    private static String getMessage(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+}
@@ -12,6 +12,10 @@ public final class Permissions {
     public static final String CMD_DESCRIBE = "ore.describe";
     public static final String CMD_RELOAD = "ore.reload";
     public static final String CMD_VERSION = "ore.version";
+    public static final String CMD_STATS = "ore.stats";
+    public static final String CMD_BUNDLE_EXPORT = "ore.bundle.export";
+    public static final String CMD_BUNDLE_IMPORT = "ore.bundle.import";
+    public static final String CMD_ROLLBACK = "ore.rollback";
 
     private Permissions() {}
 
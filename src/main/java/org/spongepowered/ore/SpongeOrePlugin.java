@@ -22,14 +22,21 @@ import org.spongepowered.api.plugin.Plugin;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.ore.client.OreClient;
+import org.spongepowered.ore.client.Routes;
 import org.spongepowered.ore.client.SpongeOreClient;
+import org.spongepowered.ore.client.http.BandwidthLimiter;
+import org.spongepowered.ore.client.http.RepositoryPool;
 import org.spongepowered.ore.cmd.CommandExecutors;
 import org.spongepowered.ore.cmd.CommandTry;
 import org.spongepowered.ore.config.OreConfig;
+import org.spongepowered.ore.mirror.OreMirror;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -39,6 +46,11 @@ import javax.inject.Inject;
 @Plugin(id = "ore", authors = { "windy" })
 public final class SpongeOrePlugin implements OrePlugin {
 
+    private static final String TASK_NAME_THROTTLE = "Ore Throttle";
+    private static final String TASK_NAME_PREFETCH = "Ore Prefetch";
+    private static final String TASK_NAME_PROBE = "Ore Repository Probe";
+    private static final String TASK_NAME_UPDATE_CHECK = "Ore Update Check";
+
     @Inject public Logger log;
     @Inject public Game game;
     @Inject public PluginContainer self;
@@ -47,6 +59,10 @@ public final class SpongeOrePlugin implements OrePlugin {
     private OreClient client;
     private OreConfig config;
     private CommandExecutors commands;
+    private Task throttleTask;
+    private Task probeTask;
+    private Task updateCheckTask;
+    private OreMirror mirror;
 
     @Listener(order = Order.POST)
     public void onStart(GameStartedServerEvent event) {
@@ -62,6 +78,20 @@ public final class SpongeOrePlugin implements OrePlugin {
         this.log.info("Reloading...");
         this.commands.deregister();
         this.commands = null;
+        if (this.throttleTask != null) {
+            this.throttleTask.cancel();
+            this.throttleTask = null;
+        }
+        if (this.probeTask != null) {
+            this.probeTask.cancel();
+            this.probeTask = null;
+        }
+        if (this.updateCheckTask != null) {
+            this.updateCheckTask.cancel();
+            this.updateCheckTask = null;
+        }
+        stopMirror();
+        this.client.close();
         this.client = null;
         this.config = null;
         if (!init())
@@ -72,36 +102,100 @@ public final class SpongeOrePlugin implements OrePlugin {
     private boolean init() {
         if (!loadConfig())
             return false;
-        this.client = SpongeOreClient.forPlugin(this);
-        if (this.client == null) {
+        SpongeOreClient client = SpongeOreClient.forPlugin(this);
+        if (client == null) {
             this.log.error("Ore failed to initialize the client. Commands are unavailable.");
             return false;
         }
+        this.client = client;
         this.commands = new CommandExecutors(this).register();
+
+        // Slow downloads down while the server is lagging
+        BandwidthLimiter limiter = client.getTransferSettings().getLimiter();
+        if (limiter.isAdaptive()) {
+            this.throttleTask = this.game.getScheduler().createTaskBuilder()
+                .name(TASK_NAME_THROTTLE)
+                .async()
+                .interval(1, TimeUnit.SECONDS)
+                .execute(() -> limiter.adapt(this.game.getServer().getTicksPerSecond()))
+                .submit(this);
+        }
+
+        // Keep track of which repository answers fastest
+        RepositoryPool repositories = client.getRepositories();
+        long probeInterval = getConfigRoot().getNode("repositories", "probeInterval").getLong(300);
+        if (repositories.getRepositories().size() > 1 && probeInterval > 0) {
+            this.probeTask = this.game.getScheduler().createTaskBuilder()
+                .name(TASK_NAME_PROBE)
+                .async()
+                .interval(probeInterval, TimeUnit.SECONDS)
+                .execute(() -> probeRepositories(repositories))
+                .submit(this);
+        }
+
+        // Keep checking for updates on long running servers
+        scheduleUpdateCheck(client);
+
+        // Serve other servers on the network from our cache
+        this.mirror = OreMirror.forPlugin(this);
+        if (this.mirror != null) {
+            try {
+                this.mirror.start();
+                this.log.info("Mirroring " + this.mirror.getUpstream() + " on " + this.mirror.getAddress() + ".");
+            } catch (IOException e) {
+                this.log.error("Failed to start the Ore mirror.", e);
+                this.mirror = null;
+            }
+        }
         return true;
     }
 
+    private void probeRepositories(RepositoryPool repositories) {
+        RepositoryPool.Repository preferred = repositories.getPreferred();
+        repositories.probe(Routes.PROJECT_LIST);
+        RepositoryPool.Repository fastest = repositories.getPreferred();
+        if (fastest != preferred) {
+            this.log.info("Switching to repository " + fastest + " ("
+                + Math.round(fastest.getLatency()) + " ms).");
+        }
+    }
+
+    private void stopMirror() {
+        if (this.mirror != null) {
+            this.mirror.stop();
+            this.mirror = null;
+        }
+    }
+
     @Listener(order = Order.POST)
     public void onStop(GameStoppingEvent event) {
-        if (this.client.hasUninstalledUpdates()) {
-            this.log.info("Applying " + this.client.getUninstalledUpdates() + " updates...");
+        stopMirror();
+        Optional<String> rollback = this.client.getPendingRollback();
+        if (rollback.isPresent()) {
+            this.log.info("Rolling back the mods directory to snapshot " + rollback.get() + "...");
             try {
-                this.client.installUpdates();
+                this.client.applyPending(1, 0);
                 this.log.info("Done.");
             } catch (IOException e) {
-                this.log.error("An error occurred while applying downloaded updates.", e);
+                this.log.error("An error occurred while rolling back the mods directory.", e);
             }
-        }
-
-        if (this.client.hasPendingUninstallations()) {
-            this.log.info("Uninstalling " + this.client.getPendingUninstallations() + " plugins...");
+        } else if (this.client.hasUninstalledUpdates() || this.client.hasPendingUninstallations()) {
+            int updates = this.client.getUninstalledUpdates();
+            int uninstallations = this.client.getPendingUninstallations();
+            this.log.info("Applying " + updates + " updates and " + uninstallations + " uninstallations...");
+            ConfigurationNode applyNode = getConfigRoot().getNode("apply");
             try {
-                this.client.completeUninstallations();
-                this.log.info("Done.");
+                int deferred = this.client.applyPending(applyNode.getNode("threads").getInt(4),
+                    TimeUnit.SECONDS.toMillis(applyNode.getNode("timeBudget").getLong(10)));
+                if (deferred > 0)
+                    this.log.warn("Ran out of time, " + deferred + " changes are left pending until the next stop.");
+                else
+                    this.log.info("Done.");
             } catch (IOException e) {
-                this.log.error("An error occurred while completing pending uninstallations.", e);
+                this.log.error("An error occurred while applying pending updates and uninstallations.", e);
             }
         }
+        this.client.close();
     }
 
     @Override
@@ -141,21 +235,73 @@ public final class SpongeOrePlugin implements OrePlugin {
             .submit(this);
     }
 
+    private void prefetchUpdates(Map<PluginContainer, String> updates) {
+        OreClient client = this.client;
+        this.game.getScheduler().createTaskBuilder()
+            .name(TASK_NAME_PREFETCH)
+            .async()
+            .execute(() -> {
+                try {
+                    int prefetched = client.prefetchUpdates(updates);
+                    if (prefetched > 0)
+                        this.log.info("Prefetched " + prefetched + " updates.");
+                } catch (IOException e) {
+                    this.log.error("An error occurred while prefetching updates.", e);
+                }
+            })
+            .submit(this);
+    }
+
     private void checkForUpdates() {
         this.log.info("Checking for updates...");
         ConsoleSource console = this.game.getServer().getConsole();
         newAsyncTask(CommandExecutors.TASK_NAME_SEARCH, console, () -> {
-            Map<PluginContainer, String> updates = this.client.getAvailableUpdates();
-            Builder message = AVAILABLE_UPDATES.apply(ImmutableMap.of("content", of(updates.size())));
-            for (PluginContainer update : updates.keySet()) {
-                message.append(NEW_LINE).append(UPDATE.apply(ImmutableMap.of(
-                    "pluginId", of(update.getId()),
-                    "content", of(updates.get(update))
-                )).build());
-            }
-            console.sendMessage(message.build());
+            reportUpdates(this.client.getNewUpdates(0, 0), console);
             return null;
         });
     }
 
+    private void scheduleUpdateCheck(OreClient client) {
+        ConfigurationNode node = getConfigRoot().getNode("updateChecker");
+        long interval = node.getNode("interval").getLong(1800);
+        if (!node.getNode("enabled").getBoolean(true) || interval <= 0)
+            return;
+        // Spread the checks of servers started at the same time
+        long jitter = Math.max(0, node.getNode("jitter").getLong(300));
+        long delay = interval + ThreadLocalRandom.current().nextLong(jitter + 1);
+        long maxAge = TimeUnit.SECONDS.toMillis(node.getNode("maxAge").getLong(3600));
+        int maxRequests = node.getNode("maxRequests").getInt(8);
+        this.updateCheckTask = this.game.getScheduler().createTaskBuilder()
+            .name(TASK_NAME_UPDATE_CHECK)
+            .async()
+            .delay(delay, TimeUnit.SECONDS)
+            .execute(() -> {
+                try {
+                    Map<PluginContainer, String> updates = client.getNewUpdates(maxAge, maxRequests);
+                    if (!updates.isEmpty())
+                        reportUpdates(updates, this.game.getServer().getConsole());
+                } catch (IOException e) {
+                    this.log.warn("Failed to check for updates, trying again later.", e);
+                } finally {
+                    // Not if the client was replaced by a reload meanwhile
+                    if (this.client == client)
+                        scheduleUpdateCheck(client);
+                }
+            })
+            .submit(this);
+    }
+
+    private void reportUpdates(Map<PluginContainer, String> updates, CommandSource src) {
+        Builder message = AVAILABLE_UPDATES.apply(ImmutableMap.of("content", of(updates.size())));
+        for (PluginContainer update : updates.keySet()) {
+            message.append(NEW_LINE).append(UPDATE.apply(ImmutableMap.of(
+                "pluginId", of(update.getId()),
+                "content", of(updates.get(update))
+            )).build());
+        }
+        src.sendMessage(message.build());
+        if (!updates.isEmpty())
+            prefetchUpdates(updates);
+    }
+
 }
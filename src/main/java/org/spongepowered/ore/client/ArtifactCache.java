@@ -0,0 +1,140 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.getPosixFilePermissions;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.setPosixFilePermissions;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressable store of downloaded plugin files keyed by their MD5
+ * hash that can be shared by every server on a host. Each entry is guarded
+ * by a file lock so that concurrent servers download an artifact only once.
+ * Entries are hard linked into the directories that use them, so they are
+ * made read-only and checked against their hash whenever they are used.
+ */
+public final class ArtifactCache {
+
+    private static final String LOCK_NAME = ".lock";
+
+    private final Path root;
+    private final Striped<Lock> locks = Striped.lock(64);
+
+    /**
+     * Constructs a new cache rooted at the specified directory.
+     *
+     * @param root Cache directory
+     */
+    public ArtifactCache(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the root directory of this cache.
+     *
+     * @return Cache directory
+     */
+    public Path getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Returns the cached file with the specified hash. If it is not cached
+     * yet, or the cached file no longer matches the hash, the {@link Loader}
+     * is called to place it in the entry's directory while every other
+     * caller for the same hash, in this process or another, waits for it.
+     *
+     * @param hash Hex encoded MD5 hash of the file
+     * @param loader Loader to fetch the file if absent
+     * @return Cached file
+     * @throws IOException
+     */
+    public Path computeIfAbsent(String hash, Loader loader) throws IOException {
+        String key = hash.toLowerCase(Locale.ROOT);
+        if (!key.matches("[0-9a-f]{32}"))
+            throw new IllegalArgumentException("invalid hash: " + hash);
+        Path entryDir = this.root.resolve(key.substring(0, 2)).resolve(key);
+        createDirectories(entryDir);
+
+        // File locks are held per process, so serialize our own threads first
+        Lock lock = this.locks.get(key);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(entryDir.resolve(LOCK_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            Optional<Path> cached = find(entryDir);
+            if (cached.isPresent()) {
+                if (hash(cached.get()).equals(key)) {
+                    setReadOnly(cached.get());
+                    return cached.get();
+                }
+                // Corrupted or written to in place, fetch it again rather
+                // than handing it to another server
+                delete(cached.get());
+            }
+            Path loaded = loader.load(entryDir);
+            setReadOnly(loaded);
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.md5()).toString();
+    }
+
+    private static void setReadOnly(Path file) throws IOException {
+        // Only where read-only files can still be unlinked, which is what
+        // uninstalling a linked plugin does
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            return;
+        Set<PosixFilePermission> permissions = getPosixFilePermissions(file);
+        Set<PosixFilePermission> readOnly = EnumSet.noneOf(PosixFilePermission.class);
+        readOnly.addAll(permissions);
+        readOnly.removeAll(EnumSet.of(PosixFilePermission.OWNER_WRITE, PosixFilePermission.GROUP_WRITE,
+            PosixFilePermission.OTHERS_WRITE));
+        if (!readOnly.equals(permissions))
+            setPosixFilePermissions(file, readOnly);
+    }
+
+    private static Optional<Path> find(Path entryDir) throws IOException {
+        try (Stream<Path> files = list(entryDir)) {
+            return files.filter(path -> path.toString().endsWith(".jar")).findFirst();
+        }
+    }
+
+    /**
+     * Fetches a file that is missing from the cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Fetches the file into the specified entry directory.
+         *
+         * @param entryDir Directory to place the file in
+         * @return Path of the fetched file
+         * @throws IOException
+         */
+        Path load(Path entryDir) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,231 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createLink;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isSameFile;
+import static java.nio.file.Files.isWritable;
+import static java.nio.file.Files.move;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nullable;
+
+/**
+ * Places finished files in directories other processes read from, such as
+ * the mods directory, so that a reader never sees a partially written file
+ * and two writers never claim the same name.
+ */
+public final class AtomicFiles {
+
+    private static final String TEMP_PREFIX = ".ore-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {}
+
+    /**
+     * Moves the specified file to the target {@link Path}, or to the first
+     * free "name (n).jar" next to it if the target is taken. The file is
+     * flushed to disk first and appears at its new name all at once.
+     *
+     * @param source File to move
+     * @param target Preferred target path
+     * @return Path the file was moved to
+     * @throws IOException
+     */
+    public static Path moveToAvailable(Path source, Path target) throws IOException {
+        return moveToAvailable(source, target, true);
+    }
+
+    /**
+     * Moves the specified file like {@link #moveToAvailable(Path, Path)},
+     * optionally leaving the target directory to be flushed to disk later
+     * through {@link #syncDirectory(Path)}, such as once after many moves.
+     *
+     * @param source File to move
+     * @param target Preferred target path
+     * @param syncDirectory True to flush the target directory right away
+     * @return Path the file was moved to
+     * @throws IOException
+     */
+    static Path moveToAvailable(Path source, Path target, boolean syncDirectory) throws IOException {
+        sync(source);
+        Path placed = place(source, target, true, syncDirectory);
+        deleteIfExists(source);
+        return placed;
+    }
+
+    /**
+     * Places the specified file at the target {@link Path}, or at the first
+     * free "name (n).jar" next to it if the target is taken, leaving the
+     * source in place. A hard link is used where possible and a copy that is
+     * flushed to disk otherwise.
+     *
+     * @param source File to link
+     * @param target Preferred target path
+     * @return Path the file was placed at
+     * @throws IOException
+     */
+    public static Path linkToAvailable(Path source, Path target) throws IOException {
+        return place(source, target, false, true);
+    }
+
+    /**
+     * Writes the specified file through a temporary file next to it that is
+     * moved onto it once complete, so that the file never holds partial
+     * contents. The move is atomic where the file system supports it.
+     *
+     * @param target File to write
+     * @param contents Writes the contents to the file it is given
+     * @throws IOException
+     */
+    public static void writeAtomically(Path target, Contents contents) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        createDirectories(dir);
+        Path temp = createTempFile(dir, TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            contents.writeTo(temp);
+            try {
+                move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the specified name, such as a plugin ID or version, with every
+     * character that is not safe to use in a file name replaced.
+     *
+     * @param name Name to convert
+     * @return Safe file name
+     */
+    public static String toFileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_").replaceAll("^\\.", "_");
+    }
+
+    private static Path place(Path source, Path target, boolean movable, boolean syncDirectory)
+        throws IOException {
+        Path dir = target.getParent();
+        createDirectories(dir);
+        Path placed = link(source, target);
+        if (placed == null && movable) {
+            try {
+                placed = rename(source, target);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                // Different file store
+            }
+        }
+
+        if (placed == null) {
+            // Copy next to the target first so that it can still appear at
+            // once
+            Path temp = createTempFile(dir, TEMP_PREFIX, TEMP_SUFFIX);
+            try {
+                copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                sync(temp);
+                placed = link(temp, target);
+                if (placed == null)
+                    placed = rename(temp, target);
+            } finally {
+                deleteIfExists(temp);
+            }
+        }
+
+        if (syncDirectory)
+            syncDirectory(dir);
+        return placed;
+    }
+
+    @Nullable
+    private static Path link(Path source, Path target) throws IOException {
+        // Creating a link fails if the name exists, which makes it a reliable
+        // way to claim a name
+        Path candidate = target;
+        int conflicts = 0;
+        while (true) {
+            try {
+                createLink(candidate, source);
+                return candidate;
+            } catch (FileAlreadyExistsException e) {
+                if (isSameFile(candidate, source))
+                    // Already linked there
+                    return candidate;
+                candidate = nextCandidate(target, ++conflicts);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                return null;
+            }
+        }
+    }
+
+    private static Path rename(Path source, Path target) throws IOException {
+        // Without links a name can only be checked before renaming onto it
+        Path candidate = target;
+        int conflicts = 0;
+        while (exists(candidate))
+            candidate = nextCandidate(target, ++conflicts);
+        move(source, candidate, StandardCopyOption.ATOMIC_MOVE);
+        return candidate;
+    }
+
+    private static Path nextCandidate(Path target, int conflicts) {
+        String fileName = target.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String name = extension > 0 ? fileName.substring(0, extension) : fileName;
+        return target.resolveSibling(name + " (" + conflicts + ").jar");
+    }
+
+    private static void sync(Path file) throws IOException {
+        // Files from the artifact cache, and copies of them, are read-only
+        // where that is supported, which is also where a read channel can
+        // flush them
+        StandardOpenOption mode = isWritable(file) ? StandardOpenOption.WRITE : StandardOpenOption.READ;
+        try (FileChannel channel = FileChannel.open(file, mode)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flushes the entries of the specified directory to disk, so that files
+     * created, moved or deleted in it stay that way after a crash. Not
+     * supported on every platform, where this does nothing.
+     *
+     * @param dir Directory to flush
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Writes the contents of a file for
+     * {@link AtomicFiles#writeAtomically(Path, Contents)}.
+     */
+    @FunctionalInterface
+    public interface Contents {
+
+        /**
+         * Writes the contents to the specified file.
+         *
+         * @param file File to write to
+         * @throws IOException
+         */
+        void writeTo(Path file) throws IOException;
+
+    }
+
+}
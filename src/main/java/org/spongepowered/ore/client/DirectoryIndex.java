@@ -0,0 +1,348 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.readAttributes;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import org.spongepowered.plugin.meta.PluginMetadata;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Follows changes to directories through a {@link WatchService} and keeps
+ * an up to date listing of them, along with the {@link PluginMetadata} of
+ * every JAR file in plugin directories. Changes are indexed once they have
+ * settled for a while, or as soon as the index is queried. Directories that
+ * cannot be watched are listed on every query instead.
+ */
+public final class DirectoryIndex implements Closeable {
+
+    private final long debounce;
+    @Nullable private final PluginMetadataIndex metadataIndex;
+    private final Map<Path, Directory> directories = new HashMap<>();
+    private final Set<Path> changed = new HashSet<>();
+    private final Set<Path> overflowed = new HashSet<>();
+    private WatchService watcher;
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new index.
+     *
+     * @param debounce Milliseconds to let changes settle before indexing
+     *        them
+     * @param metadataIndex Index of plugin metadata to fill plugin
+     *        directories from at first, null to read every JAR file
+     */
+    public DirectoryIndex(long debounce, @Nullable PluginMetadataIndex metadataIndex) {
+        this.debounce = Math.max(0, debounce);
+        this.metadataIndex = metadataIndex;
+    }
+
+    /**
+     * Starts following the specified directory, creating it if needed.
+     *
+     * @param dir Directory to follow
+     * @param plugins True if the directory holds plugins whose metadata
+     *        should be indexed
+     * @throws IOException
+     */
+    public synchronized void watch(Path dir, boolean plugins) throws IOException {
+        if (this.closed)
+            throw new IllegalStateException("index closed");
+        Path key = toKey(dir);
+        createDirectories(key);
+        if (this.watcher == null)
+            this.watcher = key.getFileSystem().newWatchService();
+        key.register(this.watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+
+        Directory directory = new Directory(plugins);
+        relist(key, directory);
+        if (plugins) {
+            // Start from what is known about the JAR files already
+            Map<Path, List<PluginMetadata>> metadata = new PluginMetadataScanner(key,
+                PluginMetadataScanner.DEFAULT_PARALLELISM, this.metadataIndex).scan();
+            for (Map.Entry<Path, Entry> entry : directory.entries.entrySet()) {
+                if (entry.getValue().isJar) {
+                    entry.getValue().metadata = metadata.getOrDefault(entry.getKey(), Collections.emptyList());
+                    entry.getValue().metadataRead = true;
+                }
+            }
+        }
+        directory.watched = true;
+        this.directories.put(key, directory);
+
+        if (this.thread == null) {
+            this.thread = new Thread(this::run, "Ore Directory Index");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Returns every file and directory in the specified directory, in path
+     * order.
+     *
+     * @param dir Directory to list
+     * @return Directory contents
+     * @throws IOException
+     */
+    public List<Path> list(Path dir) throws IOException {
+        synchronized (this) {
+            Directory directory = getWatched(dir);
+            if (directory != null)
+                return new ArrayList<>(directory.entries.keySet());
+        }
+        try (Stream<Path> files = Files.list(toKey(dir))) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns true if the specified file exists.
+     *
+     * @param file File to check
+     * @return True if file exists
+     */
+    public boolean exists(Path file) {
+        Path key = toKey(file);
+        synchronized (this) {
+            Directory directory = getWatched(key.getParent());
+            if (directory != null)
+                return directory.entries.containsKey(key);
+        }
+        return Files.exists(key);
+    }
+
+    /**
+     * Returns the {@link PluginMetadata} of every JAR file in the specified
+     * plugin directory that has any, in path order.
+     *
+     * @param dir Plugin directory
+     * @return Map of path -> plugin metadata list
+     * @throws IOException if a JAR file cannot be read
+     */
+    public Map<Path, List<PluginMetadata>> getPluginMetadata(Path dir) throws IOException {
+        synchronized (this) {
+            Directory directory = getWatched(dir);
+            if (directory != null && directory.plugins) {
+                Map<Path, List<PluginMetadata>> metadata = new LinkedHashMap<>();
+                for (Map.Entry<Path, Entry> entry : directory.entries.entrySet()) {
+                    Entry file = entry.getValue();
+                    if (!file.isJar)
+                        continue;
+                    if (!file.metadataRead)
+                        readMetadata(entry.getKey(), file);
+                    if (!file.metadata.isEmpty())
+                        metadata.put(entry.getKey(), file.metadata);
+                }
+                return metadata;
+            }
+        }
+        return new PluginMetadataScanner(toKey(dir), PluginMetadataScanner.DEFAULT_PARALLELISM,
+            this.metadataIndex).scan();
+    }
+
+    /**
+     * Indexes the specified file again right away, such as after it was
+     * written. Changes the watch service has not reported yet are otherwise
+     * missed by queries until it does.
+     *
+     * @param file Changed file
+     */
+    public synchronized void refresh(Path file) {
+        this.changed.add(toKey(file));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            for (Directory directory : this.directories.values())
+                directory.watched = false;
+        }
+        if (this.thread != null)
+            this.thread.interrupt();
+        if (this.watcher != null) {
+            try {
+                this.watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!this.closed) {
+                boolean pending;
+                synchronized (this) {
+                    pending = !this.changed.isEmpty() || !this.overflowed.isEmpty();
+                }
+                WatchKey key = pending ? this.watcher.poll(this.debounce, TimeUnit.MILLISECONDS) : this.watcher.take();
+                if (key == null) {
+                    // Quiet for long enough, index what changed meanwhile
+                    synchronized (this) {
+                        flush(true);
+                    }
+                    continue;
+                }
+
+                Path dir = (Path) key.watchable();
+                synchronized (this) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW)
+                            this.overflowed.add(dir);
+                        else
+                            this.changed.add(dir.resolve((Path) event.context()));
+                    }
+                    if (!key.reset()) {
+                        // Directory is gone, go back to listing it
+                        Directory directory = this.directories.get(dir);
+                        if (directory != null)
+                            directory.watched = false;
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    @Nullable
+    private Directory getWatched(Path dir) {
+        Directory directory = this.directories.get(toKey(dir));
+        if (directory == null || !directory.watched)
+            return null;
+        flush(false);
+        return directory.watched ? directory : null;
+    }
+
+    private void flush(boolean readMetadata) {
+        for (Path dir : this.overflowed) {
+            Directory directory = this.directories.get(dir);
+            if (directory == null)
+                continue;
+            try {
+                relist(dir, directory);
+            } catch (IOException e) {
+                directory.watched = false;
+            }
+        }
+        this.overflowed.clear();
+
+        for (Path file : this.changed) {
+            Directory directory = this.directories.get(file.getParent());
+            if (directory == null)
+                continue;
+            try {
+                update(file, directory, readAttributes(file, BasicFileAttributes.class));
+            } catch (NoSuchFileException e) {
+                directory.entries.remove(file);
+            } catch (IOException e) {
+                directory.watched = false;
+            }
+        }
+        this.changed.clear();
+
+        if (readMetadata) {
+            // Read new JAR files ahead of time rather than when asked
+            for (Directory directory : this.directories.values()) {
+                if (!directory.plugins)
+                    continue;
+                for (Map.Entry<Path, Entry> entry : directory.entries.entrySet()) {
+                    if (entry.getValue().isJar && !entry.getValue().metadataRead) {
+                        try {
+                            readMetadata(entry.getKey(), entry.getValue());
+                        } catch (IOException ignored) {
+                            // Possibly still being copied, tried again when asked
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void relist(Path dir, Directory directory) throws IOException {
+        Set<Path> present = new HashSet<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    update(file, directory, readAttributes(file, BasicFileAttributes.class));
+                    present.add(file);
+                } catch (NoSuchFileException ignored) {
+                }
+            }
+        }
+        directory.entries.keySet().retainAll(present);
+    }
+
+    private static void update(Path file, Directory directory, BasicFileAttributes attributes) {
+        long modified = attributes.lastModifiedTime().toMillis();
+        Entry entry = directory.entries.get(file);
+        if (entry != null && entry.size == attributes.size() && entry.modified == modified)
+            return;
+        entry = new Entry();
+        entry.size = attributes.size();
+        entry.modified = modified;
+        entry.isJar = directory.plugins && attributes.isRegularFile() && file.toString().endsWith(".jar");
+        directory.entries.put(file, entry);
+    }
+
+    private static void readMetadata(Path file, Entry entry) throws IOException {
+        List<PluginMetadata> metadata = PluginMetadataScanner.read(file);
+        entry.metadata = metadata != null ? metadata : Collections.emptyList();
+        entry.metadataRead = true;
+    }
+
+    private static Path toKey(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static final class Directory {
+
+        final boolean plugins;
+        final Map<Path, Entry> entries = new TreeMap<>();
+        boolean watched;
+
+        Directory(boolean plugins) {
+            this.plugins = plugins;
+        }
+
+    }
+
+    private static final class Entry {
+
+        long size;
+        long modified;
+        boolean isJar;
+        boolean metadataRead;
+        List<PluginMetadata> metadata = Collections.emptyList();
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createLink;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.isSameFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.notExists;
+
+import org.spongepowered.api.util.file.DeleteFileVisitor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps snapshots of the JAR files in a directory, such as the mods
+ * directory before updates are applied to it. Snapshots are made of hard
+ * links, so taking or restoring one only creates and removes directory
+ * entries and never copies the contents of a file. A snapshot stays intact
+ * as long as files in the directory are replaced rather than written to in
+ * place, which is how Ore changes them.
+ */
+public final class DirectorySnapshots {
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String TEMP_PREFIX = ".ore-snapshot-";
+
+    private final Path dir;
+    private final Path snapshotsDir;
+    private final int retain;
+
+    /**
+     * Constructs a new set of snapshots of the specified directory.
+     *
+     * @param dir Directory to take snapshots of
+     * @param snapshotsDir Directory to keep snapshots in, on the same file
+     *        system as the directory
+     * @param retain Amount of snapshots to keep
+     */
+    public DirectorySnapshots(Path dir, Path snapshotsDir, int retain) {
+        this.dir = dir;
+        this.snapshotsDir = snapshotsDir;
+        this.retain = Math.max(1, retain);
+    }
+
+    /**
+     * Returns the names of the snapshots taken, newest first.
+     *
+     * @return Snapshot names
+     * @throws IOException
+     */
+    public List<String> list() throws IOException {
+        if (notExists(this.snapshotsDir))
+            return new ArrayList<>();
+        try (Stream<Path> snapshots = Files.list(this.snapshotsDir)) {
+            return snapshots
+                .filter(Files::isDirectory)
+                .map(snapshot -> snapshot.getFileName().toString())
+                .filter(name -> !name.startsWith(TEMP_PREFIX))
+                .sorted(Collections.reverseOrder())
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Takes a snapshot of the JAR files in the directory and drops the
+     * oldest snapshots beyond the amount to keep.
+     *
+     * @return Name of new snapshot
+     * @throws IOException if the file system does not support hard links
+     */
+    public String take() throws IOException {
+        createDirectories(this.dir);
+        createDirectories(this.snapshotsDir);
+        // Built under a temporary name so that an unfinished snapshot is
+        // never mistaken for a complete one
+        Path temp = Files.createTempDirectory(this.snapshotsDir, TEMP_PREFIX);
+        try {
+            for (Path jar : listJars(this.dir).values())
+                link(temp.resolve(jar.getFileName()), jar);
+            AtomicFiles.syncDirectory(temp);
+
+            String name = LocalDateTime.now().format(NAME_FORMAT);
+            Path snapshot = this.snapshotsDir.resolve(name);
+            for (int conflicts = 1; exists(snapshot); conflicts++)
+                snapshot = this.snapshotsDir.resolve(name + '-' + conflicts);
+            move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            AtomicFiles.syncDirectory(this.snapshotsDir);
+            prune();
+            return snapshot.getFileName().toString();
+        } finally {
+            if (exists(temp))
+                Files.walkFileTree(temp, DeleteFileVisitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Restores the directory to the specified snapshot, removing JAR files
+     * that were not in it and placing back those that were. The snapshot is
+     * kept.
+     *
+     * @param name Snapshot name
+     * @return Amount of JAR files removed or placed back
+     * @throws IOException
+     */
+    public int restore(String name) throws IOException {
+        Path snapshot = this.snapshotsDir.resolve(name);
+        if (!isDirectory(snapshot) || name.startsWith(TEMP_PREFIX))
+            throw new IOException("no snapshot named " + name);
+        Map<String, Path> wanted = listJars(snapshot);
+
+        createDirectories(this.dir);
+        int changed = 0;
+        for (Map.Entry<String, Path> jar : listJars(this.dir).entrySet()) {
+            Path source = wanted.get(jar.getKey());
+            if (source == null || !isSameFile(source, jar.getValue())) {
+                delete(jar.getValue());
+                changed++;
+            }
+        }
+        for (Map.Entry<String, Path> jar : wanted.entrySet()) {
+            Path target = this.dir.resolve(jar.getKey());
+            if (notExists(target)) {
+                link(target, jar.getValue());
+                changed++;
+            }
+        }
+        AtomicFiles.syncDirectory(this.dir);
+        return changed;
+    }
+
+    private void prune() throws IOException {
+        List<String> snapshots = list();
+        for (String name : snapshots.subList(Math.min(this.retain, snapshots.size()), snapshots.size()))
+            Files.walkFileTree(this.snapshotsDir.resolve(name), DeleteFileVisitor.INSTANCE);
+    }
+
+    private static Map<String, Path> listJars(Path dir) throws IOException {
+        Map<String, Path> jars = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".jar") && isRegularFile(file))
+                    jars.put(file.getFileName().toString(), file);
+            }
+        }
+        return jars;
+    }
+
+    private static void link(Path link, Path existing) throws IOException {
+        try {
+            createLink(link, existing);
+        } catch (UnsupportedOperationException e) {
+            throw new IOException("hard links are not supported by the file system of " + existing, e);
+        }
+    }
+
+}
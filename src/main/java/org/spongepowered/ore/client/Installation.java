@@ -13,6 +13,7 @@ public final class Installation {
     private final String pluginId;
     private final String version;
     private final Path path;
+    private final long size;
 
     /**
      * Constructs a new installation object for the given plugin ID, version,
@@ -23,9 +24,24 @@ public final class Installation {
      * @param path Current path
      */
     public Installation(String pluginId, String version, Path path) {
+        this(pluginId, version, path, -1);
+    }
+
+    /**
+     * Constructs a new installation object for the given plugin ID, version,
+     * the current {@link Path} in which the plugin file resides and the size
+     * the file is expected to have.
+     *
+     * @param pluginId Plugin ID
+     * @param version Installed version
+     * @param path Current path
+     * @param size Expected file size in bytes, -1 if unknown
+     */
+    public Installation(String pluginId, String version, Path path, long size) {
         this.pluginId = pluginId;
         this.version = version;
         this.path = path;
+        this.size = size;
     }
 
     /**
@@ -55,6 +71,15 @@ public final class Installation {
         return this.path;
     }
 
+    /**
+     * Returns the size this plugin's file is expected to have.
+     *
+     * @return Expected file size in bytes, -1 if unknown
+     */
+    public long getSize() {
+        return this.size;
+    }
+
     /**
      * Constructs a new Installation object from the specified
      * {@link PluginContainer}.
@@ -73,6 +98,7 @@ public final class Installation {
             .add("pluginId", this.pluginId)
             .add("version", this.version)
             .add("path", this.path)
+            .add("size", this.size)
             .toString();
     }
 
@@ -0,0 +1,102 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newBufferedReader;
+import static java.nio.file.Files.newBufferedWriter;
+import static java.nio.file.Files.notExists;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entries keyed by string that are stored in a JSON file, such as those of
+ * a {@link PluginMetadataIndex} or an {@link UpdateCache}. The file is read
+ * on first use and only written back if an entry changed. It only holds a
+ * cache, so a file that cannot be read is started over. Not thread-safe,
+ * owners synchronize access themselves.
+ *
+ * @param <E> Entry type
+ */
+final class JsonIndex<E> {
+
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private final Type type;
+    private Map<String, E> entries;
+    private boolean dirty;
+
+    /**
+     * Constructs a new index stored at the specified file.
+     *
+     * @param file File to store the index at
+     * @param type Type of the map of entries, such as from a
+     *        {@link com.google.gson.reflect.TypeToken}
+     */
+    JsonIndex(Path file, Type type) {
+        this.file = file;
+        this.type = type;
+    }
+
+    /**
+     * Returns the entries, loading them from the file first if needed.
+     * Changes to them are only written if {@link #markDirty()} is called.
+     *
+     * @return Entries by key
+     */
+    Map<String, E> getEntries() {
+        if (this.entries == null)
+            this.entries = load();
+        return this.entries;
+    }
+
+    /**
+     * Marks the entries as changed, so that the next {@link #save()} writes
+     * them.
+     */
+    void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Writes the entries to the file if they changed since they were
+     * loaded.
+     *
+     * @throws IOException
+     */
+    void save() throws IOException {
+        if (!this.dirty)
+            return;
+        AtomicFiles.writeAtomically(this.file, temp -> {
+            try (Writer writer = newBufferedWriter(temp, UTF_8)) {
+                GSON.toJson(this.entries, this.type, writer);
+            }
+        });
+        this.dirty = false;
+    }
+
+    private Map<String, E> load() {
+        if (notExists(this.file))
+            return new HashMap<>();
+        try (Reader reader = newBufferedReader(this.file, UTF_8)) {
+            Map<String, E> entries = GSON.fromJson(reader, this.type);
+            if (entries != null) {
+                entries.values().removeIf(entry -> entry == null);
+                return entries;
+            }
+        } catch (IOException | JsonParseException e) {
+            // Only a cache, start over
+        }
+        this.dirty = true;
+        return new HashMap<>();
+    }
+
+}
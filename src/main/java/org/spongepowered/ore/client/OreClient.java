@@ -3,6 +3,7 @@ package org.spongepowered.ore.client;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.ore.client.exception.*;
 import org.spongepowered.ore.client.http.HttpUtils;
+import org.spongepowered.ore.client.http.RepositoryPool;
 import org.spongepowered.ore.client.model.project.Project;
 import org.spongepowered.ore.client.model.user.User;
 
@@ -10,6 +11,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,11 +36,22 @@ public interface OreClient {
     void setMessenger(Messenger messenger);
 
     /**
-     * Returns the root URL of SpongeOrePlugin instance.
+     * Returns the root URL of SpongeOrePlugin instance requests are currently
+     * sent to.
      *
      * @return Root URL
      */
-    URL getRootUrl();
+    default URL getRootUrl() {
+        return getRepositories().getPreferred().getUrl();
+    }
+
+    /**
+     * Returns the {@link RepositoryPool} of equivalent SpongeOrePlugin
+     * instances requests can be sent to.
+     *
+     * @return Repositories
+     */
+    RepositoryPool getRepositories();
 
     /**
      * Returns the full URL of the specified route.
@@ -49,8 +62,22 @@ public interface OreClient {
      * @return Full URL
      */
     default URL getRouteUrl(String route, @Nullable String queryString, Object... params) {
+        return getRouteUrl(getRootUrl(), route, queryString, params);
+    }
+
+    /**
+     * Returns the full URL of the specified route on the specified
+     * SpongeOrePlugin instance.
+     *
+     * @param rootUrl Root URL of instance
+     * @param route SpongeOrePlugin route
+     * @param queryString Query string to append to URL
+     * @param params Format parameters
+     * @return Full URL
+     */
+    default URL getRouteUrl(URL rootUrl, String route, @Nullable String queryString, Object... params) {
         try {
-            return new URL(getRootUrl() + String.format(route, params)
+            return new URL(rootUrl + String.format(route, params)
                 + HttpUtils.encodeQueryStringParameters(queryString));
         } catch (MalformedURLException | UnsupportedEncodingException e) {
             throw new RuntimeException(e);
@@ -158,6 +185,32 @@ public interface OreClient {
      */
     Map<PluginContainer, String> getAvailableUpdates() throws IOException;
 
+    /**
+     * Returns the updates among loaded plugins that became available since
+     * this method last returned them. Only projects last checked longer ago
+     * than the specified age are asked for, with conditional requests that
+     * cost next to nothing for projects that did not change.
+     *
+     * @param maxAge Milliseconds to trust the last check of a project for
+     * @param maxRequests Projects to ask for at most, oldest check first, 0
+     *        for no limit
+     * @return A map of plugin ID -> new version
+     * @throws IOException
+     */
+    Map<PluginContainer, String> getNewUpdates(long maxAge, int maxRequests) throws IOException;
+
+    /**
+     * Downloads the specified updates ahead of time so that a later
+     * {@link #updatePlugin(String, String)} for the same version only has to
+     * move the prefetched file in place. Updates that do not fit the disk
+     * budget for prefetched files are skipped.
+     *
+     * @param updates A map of plugin -> new version
+     * @return Amount of updates newly prefetched
+     * @throws IOException
+     */
+    int prefetchUpdates(Map<PluginContainer, String> updates) throws IOException;
+
     /**
      * Downloads an update for a plugin of the specified ID.
      *
@@ -174,6 +227,37 @@ public interface OreClient {
     void updatePlugin(String id, String version)
         throws IOException, PluginNotInstalledException, PluginNotFoundException, NoUpdateAvailableException;
 
+    /**
+     * Writes a {@link PluginBundle} of the specified plugins and every
+     * plugin they depend on to the specified file, so that they can be
+     * installed with {@link #importBundle(Path, boolean)} without access to
+     * Ore. If no plugins are specified, every installed plugin that is on Ore
+     * is bundled at its installed version.
+     *
+     * @param file File to write the bundle to
+     * @param plugins A map of plugin ID -> version
+     * @return Amount of plugins bundled
+     * @throws IOException
+     * @throws PluginNotFoundException if one of the specified plugins cannot
+     *         be found on Ore
+     */
+    int exportBundle(Path file, Map<String, String> plugins) throws IOException, PluginNotFoundException;
+
+    /**
+     * Installs every plugin of the {@link PluginBundle} at the specified
+     * file that is not installed at the same version already. Loaded plugins
+     * are updated instead. The bundle is read as a stream.
+     *
+     * @param file Bundle file
+     * @param ignorePlatformVersion True if the client should ignore a
+     *        mismatched platform API version
+     * @return Amount of plugins installed
+     * @throws IOException
+     * @throws UnsupportedPlatformVersion if a plugin of the bundle requires a
+     *         different platform API version
+     */
+    int importBundle(Path file, boolean ignorePlatformVersion) throws IOException, UnsupportedPlatformVersion;
+
     /**
      * Returns true if there are any updates to apply.
      *
@@ -214,6 +298,59 @@ public interface OreClient {
      */
     void completeUninstallations() throws IOException;
 
+    /**
+     * Applies pending updates and then deletes pending uninstallations,
+     * running independent file operations at the same time. Operations that
+     * have not started once the time budget is spent stay pending and are
+     * recovered the next time the client starts.
+     *
+     * @param parallelism Amount of file operations to run at once
+     * @param timeBudget Milliseconds to start operations within, 0 for no
+     *        limit
+     * @return Amount of operations left pending
+     * @throws IOException
+     */
+    int applyPending(int parallelism, long timeBudget) throws IOException;
+
+    /**
+     * Returns the names of the snapshots taken of the mods directory before
+     * changes were applied to it, newest first.
+     *
+     * @return Snapshot names
+     * @throws IOException
+     */
+    List<String> getSnapshots() throws IOException;
+
+    /**
+     * Restores the mods directory to the specified snapshot the next time
+     * pending changes are applied, instead of applying them.
+     *
+     * @param snapshot Name of snapshot, null for the newest one
+     * @return Name of snapshot to restore
+     * @throws IOException
+     * @throws SnapshotNotFoundException if there is no such snapshot
+     */
+    String rollback(@Nullable String snapshot) throws IOException, SnapshotNotFoundException;
+
+    /**
+     * Returns the name of the snapshot the mods directory is going to be
+     * restored to, if any.
+     *
+     * @return Snapshot to restore
+     */
+    Optional<String> getPendingRollback();
+
+    /**
+     * Cancels restoring the mods directory to a snapshot.
+     */
+    void cancelRollback();
+
+    /**
+     * Releases anything the client holds on to, such as directory watches.
+     * The client can still be used afterwards.
+     */
+    void close();
+
     /**
      * Retrieves and returns a {@link User} of the specified username.
      *
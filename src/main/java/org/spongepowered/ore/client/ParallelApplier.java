@@ -0,0 +1,145 @@
+package org.spongepowered.ore.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries out independent file operations, such as installing updates and
+ * deleting uninstalled plugins, on a bounded amount of threads within a
+ * time budget. An operation that has not started once the budget is spent
+ * is skipped rather than cut off halfway. The directories operations change
+ * are flushed to disk once at the end rather than after every operation.
+ */
+final class ParallelApplier {
+
+    private final int parallelism;
+    private final long start = System.nanoTime();
+    private final long budget;
+    private final Set<Path> changedDirs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new applier.
+     *
+     * @param parallelism Operations to run at once, 1 to run them one after
+     *        another
+     * @param timeBudget Milliseconds from now to start operations within, 0
+     *        for no limit
+     */
+    ParallelApplier(int parallelism, long timeBudget) {
+        this.parallelism = Math.max(1, parallelism);
+        this.budget = timeBudget > 0 ? TimeUnit.MILLISECONDS.toNanos(timeBudget) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Runs the specified operations, waiting for every one that was started
+     * to finish, and flushes the directories they changed.
+     *
+     * @param operations Operations to run
+     * @throws IOException if an operation failed, after the others finished
+     */
+    void apply(Collection<Operation> operations) throws IOException {
+        int threads = Math.min(this.parallelism, operations.size());
+        try {
+            if (threads <= 1) {
+                for (Operation operation : operations)
+                    run(operation);
+            } else
+                applyConcurrently(operations, threads);
+        } finally {
+            for (Path dir : this.changedDirs)
+                AtomicFiles.syncDirectory(dir);
+            this.changedDirs.clear();
+        }
+    }
+
+    private void applyConcurrently(Collection<Operation> operations, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+            .setNameFormat("Ore Apply #%d")
+            .setDaemon(true)
+            .build());
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Operation operation : operations)
+                results.add(executor.submit(() -> {
+                    run(operation);
+                    return null;
+                }));
+
+            // Let every started operation finish before reporting a failure,
+            // so that none is left halfway
+            IOException failure = null;
+            for (Future<?> result : results) {
+                try {
+                    get(result);
+                } catch (IOException e) {
+                    if (failure == null)
+                        failure = e;
+                    else
+                        failure.addSuppressed(e);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void run(Operation operation) throws IOException {
+        if (!isExpired())
+            operation.apply(this.changedDirs);
+    }
+
+    private boolean isExpired() {
+        return System.nanoTime() - this.start >= this.budget;
+    }
+
+    private static void get(Future<?> result) throws IOException {
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while applying changes");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * A file operation that does not depend on any other operation run
+     * alongside it.
+     */
+    interface Operation {
+
+        /**
+         * Carries out the operation.
+         *
+         * @param changedDirs Directories whose entries were changed, to be
+         *        flushed to disk afterwards
+         * @throws IOException
+         */
+        void apply(Set<Path> changedDirs) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,306 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.newBufferedReader;
+import static java.nio.file.Files.notExists;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * An append-only record of the installs, updates and removals that are
+ * waiting for the server to stop, so that they survive the server dying
+ * before then. Every record is on disk before {@link #append(Record)}
+ * returns, and records appended at the same time share a single flush.
+ */
+public final class PendingJournal implements Closeable {
+
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private FileChannel channel;
+    private long written;
+    private long synced;
+    private boolean syncing;
+
+    /**
+     * Constructs a new journal at the specified file.
+     *
+     * @param file Journal file
+     */
+    public PendingJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the journal and returns the operations still pending, in the
+     * order they were first recorded. A record cut off by a crash is
+     * dropped from the journal.
+     *
+     * @return Pending operations
+     * @throws IOException
+     */
+    public synchronized List<Record> replay() throws IOException {
+        Map<String, Record> pending = new LinkedHashMap<>();
+        if (notExists(this.file))
+            return new ArrayList<>();
+        boolean torn = false;
+        try (BufferedReader reader = newBufferedReader(this.file, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Record record;
+                try {
+                    record = GSON.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    // Torn write, nothing after it was acknowledged
+                    torn = true;
+                    break;
+                }
+                if (record == null || record.type == null || record.pluginId == null)
+                    continue;
+                String key = record.type + ":" + record.pluginId;
+                pending.remove(key);
+                if (!record.cancelled)
+                    pending.put(key, record);
+            }
+        }
+        if (torn)
+            // Records appended after it would never be read otherwise
+            checkpoint(pending.values());
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Appends the specified record and waits until it is on disk.
+     *
+     * @param record Record to append
+     * @throws IOException
+     */
+    public void append(Record record) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((GSON.toJson(record) + '\n').getBytes(UTF_8));
+        long sequence;
+        synchronized (this) {
+            if (this.channel == null) {
+                Path dir = this.file.toAbsolutePath().getParent();
+                createDirectories(dir);
+                boolean created = notExists(this.file);
+                this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+                if (created)
+                    AtomicFiles.syncDirectory(dir);
+            }
+            while (line.hasRemaining())
+                this.channel.write(line);
+            sequence = ++this.written;
+        }
+        awaitSynced(sequence);
+    }
+
+    /**
+     * Replaces the journal with the specified pending operations, such as
+     * after some of them were carried out.
+     *
+     * @param pending Operations still pending
+     * @throws IOException
+     */
+    public synchronized void checkpoint(Collection<Record> pending) throws IOException {
+        awaitIdle();
+        close();
+        if (pending.isEmpty()) {
+            deleteIfExists(this.file);
+            return;
+        }
+
+        AtomicFiles.writeAtomically(this.file, temp -> {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (Record record : pending) {
+                    ByteBuffer line = ByteBuffer.wrap((GSON.toJson(record) + '\n').getBytes(UTF_8));
+                    while (line.hasRemaining())
+                        out.write(line);
+                }
+                out.force(true);
+            }
+        });
+        // Persists the new journal's directory entry
+        AtomicFiles.syncDirectory(this.file.toAbsolutePath().getParent());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel != null) {
+            awaitIdle();
+            if (this.synced < this.written)
+                this.channel.force(false);
+            this.channel.close();
+            this.channel = null;
+            // Whatever was written is either on disk or replaced by now
+            this.synced = this.written;
+            notifyAll();
+        }
+    }
+
+    private void awaitSynced(long sequence) throws IOException {
+        while (true) {
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                while (this.syncing && this.synced < sequence)
+                    waitForSync();
+                if (this.synced >= sequence || this.channel == null)
+                    // Flushed by another append, or by a checkpoint
+                    return;
+                // Flush everything written so far, not just this record
+                this.syncing = true;
+                channel = this.channel;
+                target = this.written;
+            }
+
+            boolean success = false;
+            try {
+                channel.force(false);
+                success = true;
+            } finally {
+                synchronized (this) {
+                    this.syncing = false;
+                    if (success)
+                        this.synced = Math.max(this.synced, target);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private void awaitIdle() throws IOException {
+        while (this.syncing)
+            waitForSync();
+    }
+
+    private void waitForSync() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while flushing journal");
+        }
+    }
+
+    /**
+     * An operation in the journal.
+     */
+    public static final class Record {
+
+        /**
+         * The kind of pending operation.
+         */
+        public enum Type {
+            /**
+             * A plugin placed in the mods directory that is not loaded yet.
+             */
+            INSTALL,
+            /**
+             * An update staged in the updates directory.
+             */
+            UPDATE,
+            /**
+             * A loaded plugin to delete once the server stops.
+             */
+            REMOVE
+        }
+
+        private Type type;
+        private String pluginId;
+        @Nullable private String version;
+        @Nullable private String path;
+        private long size;
+        private boolean cancelled;
+
+        private Record(Type type, String pluginId, @Nullable String version, @Nullable Path path, long size,
+            boolean cancelled) {
+            this.type = type;
+            this.pluginId = pluginId;
+            this.version = version;
+            this.path = path != null ? path.toAbsolutePath().toString() : null;
+            this.size = size;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Returns a record of a pending operation.
+         *
+         * @param type Type of operation
+         * @param pluginId Plugin ID
+         * @param version Plugin version, if known
+         * @param path Plugin file, if known
+         * @return New record
+         */
+        public static Record of(Type type, String pluginId, @Nullable String version, @Nullable Path path) {
+            return new Record(type, pluginId, version, path, -1, false);
+        }
+
+        /**
+         * Returns a record of a pending install or update.
+         *
+         * @param type Type of operation
+         * @param installation Plugin file to install
+         * @return New record
+         */
+        public static Record of(Type type, Installation installation) {
+            return new Record(type, installation.getPluginId(), installation.getVersion(), installation.getPath(),
+                installation.getSize(), false);
+        }
+
+        /**
+         * Returns a record that an operation is no longer pending.
+         *
+         * @param type Type of operation
+         * @param pluginId Plugin ID
+         * @return New record
+         */
+        public static Record cancel(Type type, String pluginId) {
+            return new Record(type, pluginId, null, null, -1, true);
+        }
+
+        public Type getType() {
+            return this.type;
+        }
+
+        public String getPluginId() {
+            return this.pluginId;
+        }
+
+        @Nullable
+        public String getVersion() {
+            return this.version;
+        }
+
+        @Nullable
+        public Path getPath() {
+            return this.path != null ? Paths.get(this.path) : null;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+    }
+
+}
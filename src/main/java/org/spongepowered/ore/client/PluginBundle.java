@@ -0,0 +1,371 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.size;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.spongepowered.ore.client.model.project.Dependency;
+import org.spongepowered.ore.client.model.project.Project;
+import org.spongepowered.ore.client.model.project.Version;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * An archive of plugins, their Ore metadata and the dependencies between
+ * them that can be installed without access to Ore. The archive is a zip
+ * file starting with a manifest of every plugin, so that it can be read
+ * front to back as a stream.
+ */
+public final class PluginBundle {
+
+    private static final int FORMAT = 1;
+    private static final String MANIFEST_NAME = "bundle.json";
+    private static final String METADATA_DIR = "metadata/";
+    private static final String PLUGINS_DIR = "plugins/";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private PluginBundle() {}
+
+    /**
+     * Starts reading a bundle from the specified stream.
+     *
+     * @param in Stream to read from
+     * @return Reader positioned after the manifest
+     * @throws IOException if the stream is not a bundle
+     */
+    public static Reader read(InputStream in) throws IOException {
+        return new Reader(in);
+    }
+
+    private static String getEntryName(Plugin plugin) {
+        return PLUGINS_DIR + AtomicFiles.toFileName(plugin.pluginId) + '/' + plugin.file;
+    }
+
+    /**
+     * Lists every plugin of a bundle and what it depends on.
+     */
+    public static final class Manifest {
+
+        private int format;
+        private String createdAt;
+        private String repository;
+        private List<Plugin> plugins;
+
+        private Manifest(String repository, List<Plugin> plugins) {
+            this.format = FORMAT;
+            this.createdAt = Instant.now().toString();
+            this.repository = repository;
+            this.plugins = plugins;
+        }
+
+        /**
+         * Returns when the bundle was created.
+         *
+         * @return Creation time
+         */
+        public String getCreatedAt() {
+            return this.createdAt;
+        }
+
+        /**
+         * Returns the repository the plugins of the bundle came from.
+         *
+         * @return Repository URL
+         */
+        public String getRepository() {
+            return this.repository;
+        }
+
+        /**
+         * Returns every plugin of the bundle, dependencies first.
+         *
+         * @return Plugins
+         */
+        public List<Plugin> getPlugins() {
+            return this.plugins != null ? Collections.unmodifiableList(this.plugins) : Collections.emptyList();
+        }
+
+    }
+
+    /**
+     * A plugin of a bundle.
+     */
+    public static final class Plugin {
+
+        private String pluginId;
+        private String version;
+        private String file;
+        private long size;
+        private String md5;
+        private List<Dependency> dependencies;
+
+        private Plugin(String pluginId, Version version, String file, long size) {
+            this.pluginId = pluginId;
+            this.version = version.getName();
+            this.file = file;
+            this.size = size;
+            this.md5 = version.getMd5();
+            this.dependencies = version.getDependencies();
+        }
+
+        /**
+         * Returns the ID of the plugin.
+         *
+         * @return Plugin ID
+         */
+        public String getPluginId() {
+            return this.pluginId;
+        }
+
+        /**
+         * Returns the version of the plugin in the bundle.
+         *
+         * @return Version name
+         */
+        public String getVersion() {
+            return this.version;
+        }
+
+        /**
+         * Returns the name the plugin file is installed under.
+         *
+         * @return File name
+         */
+        public String getFileName() {
+            return this.file;
+        }
+
+        /**
+         * Returns the size of the plugin file.
+         *
+         * @return Size in bytes
+         */
+        public long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Returns the MD5 hash the repository published for the plugin file.
+         *
+         * @return Hex encoded MD5 hash, null if the repository sent none
+         */
+        @Nullable
+        public String getMd5() {
+            return this.md5;
+        }
+
+        /**
+         * Returns the dependencies of the plugin version.
+         *
+         * @return Dependencies
+         */
+        public List<Dependency> getDependencies() {
+            return this.dependencies != null ? this.dependencies : Collections.emptyList();
+        }
+
+    }
+
+    /**
+     * Collects plugins and writes them to a bundle.
+     */
+    public static final class Writer {
+
+        private final String repository;
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Constructs a new writer.
+         *
+         * @param repository Repository the plugins came from
+         */
+        public Writer(String repository) {
+            this.repository = repository;
+        }
+
+        /**
+         * Adds a plugin to the bundle. Plugins should be added after the
+         * plugins they depend on.
+         *
+         * @param pluginId ID of plugin
+         * @param project Project of plugin, if known
+         * @param version Version of plugin
+         * @param file Plugin file
+         * @return This writer
+         * @throws IOException
+         */
+        public Writer add(String pluginId, @Nullable Project project, Version version, Path file)
+            throws IOException {
+            this.entries.add(new Entry(new Plugin(pluginId, version, file.getFileName().toString(), size(file)),
+                project, version, file));
+            return this;
+        }
+
+        /**
+         * Writes the bundle to the specified file. The file only appears
+         * once it is complete.
+         *
+         * @param target File to write
+         * @throws IOException
+         */
+        public void writeTo(Path target) throws IOException {
+            AtomicFiles.writeAtomically(target, this::write);
+        }
+
+        private void write(Path file) throws IOException {
+            List<Plugin> plugins = new ArrayList<>();
+            for (Entry entry : this.entries)
+                plugins.add(entry.plugin);
+
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(newOutputStream(file)))) {
+                java.io.Writer writer = new OutputStreamWriter(zip, UTF_8);
+                putJson(zip, writer, MANIFEST_NAME, new Manifest(this.repository, plugins));
+                for (Entry entry : this.entries) {
+                    String metadataDir = METADATA_DIR + AtomicFiles.toFileName(entry.plugin.pluginId) + '/';
+                    if (entry.project != null)
+                        putJson(zip, writer, metadataDir + "project.json", entry.project);
+                    putJson(zip, writer, metadataDir + "version.json", entry.version);
+
+                    // Jars are compressed already
+                    zip.setLevel(Deflater.NO_COMPRESSION);
+                    zip.putNextEntry(new ZipEntry(getEntryName(entry.plugin)));
+                    copy(entry.file, zip);
+                    zip.closeEntry();
+                    zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+                }
+            }
+        }
+
+        private static void putJson(ZipOutputStream zip, java.io.Writer writer, String name, Object model)
+            throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            GSON.toJson(model, writer);
+            writer.flush();
+            zip.closeEntry();
+        }
+
+        private static final class Entry {
+
+            final Plugin plugin;
+            final Project project;
+            final Version version;
+            final Path file;
+
+            Entry(Plugin plugin, Project project, Version version, Path file) {
+                this.plugin = plugin;
+                this.project = project;
+                this.version = version;
+                this.file = file;
+            }
+
+        }
+
+    }
+
+    /**
+     * Reads the plugin files of a bundle one after another, without holding
+     * more than a buffer of them in memory.
+     */
+    public static final class Reader implements Closeable {
+
+        private final ZipInputStream zip;
+        private final Manifest manifest;
+        private final Map<String, Plugin> pluginsByEntry = new HashMap<>();
+
+        private Reader(InputStream in) throws IOException {
+            this.zip = new ZipInputStream(in);
+            try {
+                ZipEntry entry = this.zip.getNextEntry();
+                if (entry == null || !entry.getName().equals(MANIFEST_NAME))
+                    throw new IOException("not a plugin bundle");
+                try {
+                    this.manifest = GSON.fromJson(new InputStreamReader(this.zip, UTF_8), Manifest.class);
+                } catch (JsonParseException e) {
+                    throw new IOException("bundle manifest is malformed", e);
+                }
+                if (this.manifest == null || this.manifest.format != FORMAT)
+                    throw new IOException("unsupported bundle format");
+                for (Plugin plugin : this.manifest.getPlugins()) {
+                    String name = plugin.getFileName();
+                    if (name == null || !name.equals(AtomicFiles.toFileName(name)))
+                        throw new IOException("bundle contains an invalid file name: " + name);
+                    this.pluginsByEntry.put(getEntryName(plugin), plugin);
+                }
+            } catch (IOException | RuntimeException e) {
+                this.zip.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns the manifest of the bundle.
+         *
+         * @return Manifest
+         */
+        public Manifest getManifest() {
+            return this.manifest;
+        }
+
+        /**
+         * Moves on to the file of the next plugin in the bundle.
+         *
+         * @return Plugin whose file is now available, null at the end of
+         *         the bundle
+         * @throws IOException
+         */
+        @Nullable
+        public Plugin next() throws IOException {
+            ZipEntry entry;
+            while ((entry = this.zip.getNextEntry()) != null) {
+                // Metadata is for other tools, only plugin files are needed
+                Plugin plugin = this.pluginsByEntry.get(entry.getName());
+                if (plugin != null)
+                    return plugin;
+            }
+            return null;
+        }
+
+        /**
+         * Returns a stream of the current plugin's file. Closing it leaves
+         * the bundle open.
+         *
+         * @return Stream of plugin file
+         */
+        public InputStream openFile() {
+            return new FilterInputStream(this.zip) {
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.zip.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.spongepowered.ore.client;
+
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * The plugins present in the directory a client installs to and the platform
+ * they run on. Lets the client work against a running server as well as
+ * against a mods directory on its own.
+ */
+public interface PluginEnvironment {
+
+    /**
+     * Returns every plugin present.
+     *
+     * @return Present plugins
+     */
+    Collection<PluginContainer> getPlugins();
+
+    /**
+     * Returns the plugin with the specified ID, if present.
+     *
+     * @param id Plugin ID
+     * @return Plugin if present
+     */
+    Optional<PluginContainer> getPlugin(String id);
+
+    /**
+     * Returns true if a plugin with the specified ID is present. The files
+     * of present plugins are in use and can only be replaced through an
+     * update.
+     *
+     * @param id Plugin ID
+     * @return True if present
+     */
+    boolean isLoaded(String id);
+
+    /**
+     * Returns the version of the API the plugins run against, if known.
+     *
+     * @return API version
+     */
+    Optional<String> getApiVersion();
+
+}
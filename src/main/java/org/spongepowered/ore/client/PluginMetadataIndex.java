@@ -0,0 +1,143 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gson.reflect.TypeToken;
+import org.spongepowered.plugin.meta.McModInfo;
+import org.spongepowered.plugin.meta.PluginMetadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the {@link PluginMetadata} of JAR files between scans, so that
+ * a {@link PluginMetadataScanner} only has to read JAR files that are new
+ * or changed. A JAR file counts as unchanged while its size and modification
+ * time are.
+ */
+public final class PluginMetadataIndex {
+
+    /**
+     * A modification time this close to when a JAR file was indexed is not
+     * trusted, as the file may have been replaced again within the
+     * granularity of the file system's timestamps.
+     */
+    private static final long RACY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<String, Entry>>() {}.getType();
+
+    private final JsonIndex<Entry> index;
+
+    /**
+     * Constructs a new index stored at the specified file.
+     *
+     * @param file File to store the index at
+     */
+    public PluginMetadataIndex(Path file) {
+        this.index = new JsonIndex<>(file, ENTRIES_TYPE);
+    }
+
+    /**
+     * Returns the metadata of the specified JAR file as of when it was
+     * indexed, if it has not changed since.
+     *
+     * @param jar JAR file
+     * @param attributes Current attributes of JAR file
+     * @return Indexed metadata, an empty list if the JAR file has none, null
+     *         if it has to be read
+     */
+    @Nullable
+    synchronized List<PluginMetadata> get(Path jar, BasicFileAttributes attributes) {
+        Entry entry = getEntries().get(toKey(jar));
+        if (entry == null || entry.size != attributes.size()
+            || entry.modified != attributes.lastModifiedTime().toMillis()
+            || entry.indexed - entry.modified < RACY_MILLIS)
+            return null;
+        try {
+            return entry.info == null ? Collections.emptyList()
+                : McModInfo.DEFAULT.read(new ByteArrayInputStream(entry.info.getBytes(UTF_8)));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indexes the metadata read from the specified JAR file.
+     *
+     * @param jar JAR file
+     * @param attributes Attributes of JAR file when it was read
+     * @param metadata Metadata read, null if the JAR file has none
+     * @throws IOException
+     */
+    synchronized void put(Path jar, BasicFileAttributes attributes, @Nullable List<PluginMetadata> metadata)
+        throws IOException {
+        Entry entry = new Entry();
+        entry.size = attributes.size();
+        entry.modified = attributes.lastModifiedTime().toMillis();
+        entry.indexed = System.currentTimeMillis();
+        if (metadata != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            McModInfo.DEFAULT.write(out, metadata.toArray(new PluginMetadata[metadata.size()]));
+            entry.info = new String(out.toByteArray(), UTF_8);
+        }
+        getEntries().put(toKey(jar), entry);
+        this.index.markDirty();
+    }
+
+    /**
+     * Forgets every JAR file in the specified directory that is not one of
+     * the specified files.
+     *
+     * @param dir Scanned directory
+     * @param present JAR files still in directory
+     */
+    synchronized void retain(Path dir, Collection<Path> present) {
+        Path absoluteDir = dir.toAbsolutePath().normalize();
+        Set<String> keep = new HashSet<>();
+        for (Path jar : present)
+            keep.add(toKey(jar));
+        if (getEntries().keySet().removeIf(key -> !keep.contains(key)
+            && absoluteDir.equals(Paths.get(key).getParent())))
+            this.index.markDirty();
+    }
+
+    /**
+     * Writes the index to its file if it changed since it was loaded.
+     *
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        this.index.save();
+    }
+
+    private Map<String, Entry> getEntries() {
+        return this.index.getEntries();
+    }
+
+    private static String toKey(Path jar) {
+        return jar.toAbsolutePath().normalize().toString();
+    }
+
+    private static final class Entry {
+
+        long size;
+        long modified;
+        long indexed;
+        @Nullable String info;
+
+    }
+
+}
@@ -1,28 +1,50 @@
 package org.spongepowered.ore.client;
 
 import static java.nio.file.Files.list;
+import static java.nio.file.Files.readAttributes;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.spongepowered.plugin.meta.McModInfo;
 import org.spongepowered.plugin.meta.PluginMetadata;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 
+import javax.annotation.Nullable;
+
 /**
  * Scans a directory for any JAR files that contains a {@link PluginMetadata}
  * and maps them to the JAR file's {@link Path}.
  */
 public final class PluginMetadataScanner {
 
+    /**
+     * The amount of JAR files read at once by default. Reading is mostly
+     * waiting on storage, so this is not bound to the amount of processors.
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors());
+
     private static final String METADATA_NAME = "mcmod.info";
-    private final Map<Path, List<PluginMetadata>> metadata = new HashMap<>();
+    private final Map<Path, List<PluginMetadata>> metadata = new LinkedHashMap<>();
     private final Path targetDir;
+    private final int parallelism;
+    @Nullable private final PluginMetadataIndex index;
 
     /**
      * Constructs a new scanner for the specified target directory.
@@ -30,30 +52,156 @@ public final class PluginMetadataScanner {
      * @param targetDir Target directory
      */
     public PluginMetadataScanner(Path targetDir) {
+        this(targetDir, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructs a new scanner for the specified target directory that reads
+     * up to the specified amount of JAR files at once.
+     *
+     * @param targetDir Target directory
+     * @param parallelism JAR files to read at once, 1 to read them one after
+     *        another
+     */
+    public PluginMetadataScanner(Path targetDir, int parallelism) {
+        this(targetDir, parallelism, null);
+    }
+
+    /**
+     * Constructs a new scanner for the specified target directory that reads
+     * up to the specified amount of JAR files at once and only reads those
+     * that are not in the specified {@link PluginMetadataIndex}.
+     *
+     * @param targetDir Target directory
+     * @param parallelism JAR files to read at once, 1 to read them one after
+     *        another
+     * @param index Index of previously read JAR files, null to read all
+     */
+    public PluginMetadataScanner(Path targetDir, int parallelism, @Nullable PluginMetadataIndex index) {
         this.targetDir = targetDir;
+        this.parallelism = Math.max(1, parallelism);
+        this.index = index;
     }
 
     /**
      * Scans the directory for instances of a {@link PluginMetadata} file and
-     * maps them to the appropriate {@link Path}.
+     * maps them to the appropriate {@link Path}. The map is ordered by path
+     * no matter how many JAR files are read at once.
      *
      * @return Map of path -> plugin metadata list
      * @throws IOException
      */
     public Map<Path, List<PluginMetadata>> scan() throws IOException {
-        List<Path> installedPaths = list(this.targetDir)
-            .filter(p -> p.toString().endsWith(".jar"))
-            .collect(Collectors.toList());
-        for (Path path : installedPaths)
-            scan(path);
+        List<Path> installedPaths;
+        try (Stream<Path> files = list(this.targetDir)) {
+            installedPaths = files
+                .filter(p -> p.toString().endsWith(".jar"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        // Only read what the index does not know about
+        Map<Path, List<PluginMetadata>> indexed = new HashMap<>();
+        Map<Path, BasicFileAttributes> unindexed = new LinkedHashMap<>();
+        for (Path path : installedPaths) {
+            if (this.index == null) {
+                unindexed.put(path, null);
+                continue;
+            }
+            BasicFileAttributes attributes = readAttributes(path, BasicFileAttributes.class);
+            List<PluginMetadata> metadata = this.index.get(path, attributes);
+            if (metadata != null)
+                indexed.put(path, metadata);
+            else
+                unindexed.put(path, attributes);
+        }
+
+        Map<Path, List<PluginMetadata>> read = readAll(unindexed.keySet());
+        for (Path path : installedPaths) {
+            List<PluginMetadata> metadata = indexed.get(path);
+            if (metadata == null) {
+                metadata = read.get(path);
+                if (this.index != null)
+                    this.index.put(path, unindexed.get(path), metadata);
+            }
+            if (metadata != null && !metadata.isEmpty())
+                this.metadata.put(path, metadata);
+        }
+
+        if (this.index != null) {
+            this.index.retain(this.targetDir, installedPaths);
+            try {
+                this.index.save();
+            } catch (IOException ignored) {
+                // Only costs a rescan next time
+            }
+        }
         return this.metadata;
     }
 
-    private void scan(Path path) throws IOException {
-        JarFile jar = new JarFile(path.toFile());
-        ZipEntry metaEntry = jar.getEntry(METADATA_NAME);
-        if (metaEntry != null)
-            this.metadata.put(path, McModInfo.DEFAULT.read(jar.getInputStream(metaEntry)));
+    private Map<Path, List<PluginMetadata>> readAll(Collection<Path> paths) throws IOException {
+        Map<Path, List<PluginMetadata>> metadata = new HashMap<>();
+        int threads = Math.min(this.parallelism, paths.size());
+        if (threads <= 1) {
+            for (Path path : paths)
+                metadata.put(path, read(path));
+            return metadata;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+            .setNameFormat("Ore Metadata Scanner #%d")
+            .setDaemon(true)
+            .build());
+        try {
+            Map<Path, Future<List<PluginMetadata>>> results = new LinkedHashMap<>();
+            for (Path path : paths)
+                results.put(path, executor.submit(() -> read(path)));
+            for (Map.Entry<Path, Future<List<PluginMetadata>>> result : results.entrySet())
+                metadata.put(result.getKey(), get(result.getValue()));
+        } finally {
+            executor.shutdownNow();
+        }
+        return metadata;
+    }
+
+    @Nullable
+    private static List<PluginMetadata> get(Future<List<PluginMetadata>> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("scan interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Reads the {@link PluginMetadata} of the specified JAR file.
+     *
+     * @param path JAR file
+     * @return Plugin metadata, null if the JAR file has none
+     * @throws IOException
+     */
+    @Nullable
+    static List<PluginMetadata> read(Path path) throws IOException {
+        // Close the JAR right away, so that it can be deleted during
+        // installUpdates
+        try (JarFile jar = new JarFile(path.toFile())) {
+            ZipEntry metaEntry = jar.getEntry(METADATA_NAME);
+            if (metaEntry == null)
+                return null;
+            try (InputStream in = jar.getInputStream(metaEntry)) {
+                return McModInfo.DEFAULT.read(in);
+            }
+        }
     }
 
 }
@@ -0,0 +1,124 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.size;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.plugin.meta.PluginMetadata;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Checks staged plugin files right before they are installed, so that a
+ * file that was cut off or damaged since it was downloaded is turned away
+ * rather than keeping the server from starting. A file is checked for its
+ * expected size, an intact zip central directory and plugin metadata that
+ * declares the expected plugin.
+ */
+final class PreflightCheck {
+
+    private PreflightCheck() {}
+
+    /**
+     * Checks the specified staged plugin files, several at once.
+     *
+     * @param staged Staged plugin files
+     * @param parallelism Files to check at once
+     * @return Map of rejected installation -> reason
+     * @throws IOException
+     */
+    static Map<Installation, String> checkAll(Collection<Installation> staged, int parallelism)
+        throws IOException {
+        Map<Installation, String> rejected = new HashMap<>();
+        int threads = Math.min(parallelism, staged.size());
+        if (threads <= 1) {
+            for (Installation installation : staged) {
+                String reason = check(installation);
+                if (reason != null)
+                    rejected.put(installation, reason);
+            }
+            return rejected;
+        }
+
+        // Only reads, so nothing to flush and nothing counted against the
+        // time given to applying
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+            .setNameFormat("Ore Preflight Check #%d")
+            .setDaemon(true)
+            .build());
+        try {
+            Map<Installation, Future<String>> results = new LinkedHashMap<>();
+            for (Installation installation : staged)
+                results.put(installation, executor.submit(() -> check(installation)));
+            for (Map.Entry<Installation, Future<String>> result : results.entrySet()) {
+                String reason = get(result.getValue());
+                if (reason != null)
+                    rejected.put(result.getKey(), reason);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return rejected;
+    }
+
+    /**
+     * Checks the specified staged plugin file.
+     *
+     * @param staged Staged plugin file
+     * @return Reason the file is rejected, null if it is fine
+     */
+    @Nullable
+    static String check(Installation staged) {
+        Path file = staged.getPath();
+        try {
+            long size = size(file);
+            if (staged.getSize() > 0 && size != staged.getSize())
+                return "expected " + staged.getSize() + " bytes but found " + size;
+
+            // Opening the JAR checks its central directory, and files without
+            // metadata are left to the platform to identify
+            List<PluginMetadata> metadata = PluginMetadataScanner.read(file);
+            if (metadata != null && !metadata.isEmpty()
+                && metadata.stream().noneMatch(meta -> staged.getPluginId().equals(meta.getId()))) {
+                return "it provides " + metadata.stream().map(PluginMetadata::getId)
+                    .collect(Collectors.joining(", ")) + " instead";
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // Metadata that cannot be parsed is reported unchecked
+            return e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+    }
+
+    @Nullable
+    private static String get(Future<String> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("preflight check interrupted");
+        } catch (ExecutionException e) {
+            // check reports every failure as a reason, but errors
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+}
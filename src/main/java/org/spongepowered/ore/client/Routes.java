@@ -13,6 +13,7 @@ public final class Routes {
     public static final String USER = "/api/users/%s";
     public static final String DOWNLOAD_RECOMMENDED = "/api/projects/%s/versions/recommended/download";
     public static final String DOWNLOAD = "/api/projects/%s/versions/%s/download";
+    public static final String DELTA = "/api/projects/%s/versions/%s/delta";
 
     private Routes() {}
 
@@ -0,0 +1,120 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.isDirectory;
+
+import org.spongepowered.api.asset.Asset;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.plugin.meta.PluginMetadata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PluginEnvironment} read from the plugin files in a mods
+ * directory, for installing plugins without a running server. Every plugin
+ * found counts as loaded.
+ */
+public final class ScannedPluginEnvironment implements PluginEnvironment {
+
+    private final Map<String, PluginContainer> plugins;
+    @Nullable private final String apiVersion;
+
+    private ScannedPluginEnvironment(Map<String, PluginContainer> plugins, @Nullable String apiVersion) {
+        this.plugins = plugins;
+        this.apiVersion = apiVersion;
+    }
+
+    /**
+     * Scans the specified mods directory for plugins.
+     *
+     * @param modsDir Directory to scan, may not exist yet
+     * @param apiVersion Version of the API the plugins will run against, null
+     *        if unknown
+     * @return New environment
+     * @throws IOException
+     */
+    public static ScannedPluginEnvironment scan(Path modsDir, @Nullable String apiVersion) throws IOException {
+        Map<String, PluginContainer> plugins = new LinkedHashMap<>();
+        if (isDirectory(modsDir)) {
+            for (Map.Entry<Path, List<PluginMetadata>> jar : new PluginMetadataScanner(modsDir).scan().entrySet()) {
+                for (PluginMetadata metadata : jar.getValue())
+                    plugins.putIfAbsent(metadata.getId(), new ScannedPlugin(metadata, jar.getKey()));
+            }
+        }
+        return new ScannedPluginEnvironment(plugins, apiVersion);
+    }
+
+    @Override
+    public Collection<PluginContainer> getPlugins() {
+        return Collections.unmodifiableCollection(new ArrayList<>(this.plugins.values()));
+    }
+
+    @Override
+    public Optional<PluginContainer> getPlugin(String id) {
+        return Optional.ofNullable(this.plugins.get(id));
+    }
+
+    @Override
+    public boolean isLoaded(String id) {
+        return this.plugins.containsKey(id);
+    }
+
+    @Override
+    public Optional<String> getApiVersion() {
+        return Optional.ofNullable(this.apiVersion);
+    }
+
+    private static final class ScannedPlugin implements PluginContainer {
+
+        private final PluginMetadata metadata;
+        private final Path source;
+
+        ScannedPlugin(PluginMetadata metadata, Path source) {
+            this.metadata = metadata;
+            this.source = source;
+        }
+
+        @Override
+        public String getId() {
+            return this.metadata.getId();
+        }
+
+        @Override
+        public String getName() {
+            String name = this.metadata.getName();
+            return name != null ? name : getId();
+        }
+
+        @Override
+        public Optional<String> getVersion() {
+            return Optional.ofNullable(this.metadata.getVersion());
+        }
+
+        @Override
+        public Optional<Path> getSource() {
+            return Optional.of(this.source);
+        }
+
+        @Override
+        public Optional<Asset> getAsset(String name) {
+            // Nothing is loaded to read assets through
+            return Optional.empty();
+        }
+
+        @Override
+        public String toString() {
+            return getId();
+        }
+
+    }
+
+}
@@ -1,44 +1,61 @@
 package org.spongepowered.ore.client;
 
-import static java.nio.file.Files.copy;
 import static java.nio.file.Files.createDirectories;
-import static java.nio.file.Files.createFile;
 import static java.nio.file.Files.delete;
 import static java.nio.file.Files.deleteIfExists;
-import static java.nio.file.Files.exists;
-import static java.nio.file.Files.move;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.size;
+import static java.nio.file.Files.walk;
 import static org.spongepowered.ore.client.Routes.PROJECT;
 import static org.spongepowered.ore.client.Routes.PROJECT_LIST;
 import static org.spongepowered.ore.client.Routes.USER;
 import static org.spongepowered.ore.client.Routes.VERSION;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import com.google.common.reflect.TypeToken;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
-import org.spongepowered.api.Game;
 import org.spongepowered.api.Platform;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.plugin.PluginContainer;
-import org.spongepowered.api.plugin.PluginManager;
 import org.spongepowered.api.util.file.DeleteFileVisitor;
 import org.spongepowered.ore.SpongeOrePlugin;
+import org.spongepowered.ore.client.PendingJournal.Record;
 import org.spongepowered.ore.client.exception.*;
+import org.spongepowered.ore.client.http.ConditionalRead;
+import org.spongepowered.ore.client.http.DeltaDownload;
+import org.spongepowered.ore.client.http.DownloadScheduler;
 import org.spongepowered.ore.client.http.OreConnection;
+import org.spongepowered.ore.client.http.PartialDownload;
 import org.spongepowered.ore.client.http.PluginDownload;
+import org.spongepowered.ore.client.http.RepositoryPool;
+import org.spongepowered.ore.client.http.RequestHedger;
+import org.spongepowered.ore.client.http.TransferSettings;
 import org.spongepowered.ore.client.model.project.Dependency;
 import org.spongepowered.ore.client.model.project.Project;
 import org.spongepowered.ore.client.model.user.User;
 import org.spongepowered.ore.client.model.project.Version;
 import org.spongepowered.plugin.meta.PluginMetadata;
 
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
 
 /**
  * An implementation of {@link OreClient} built around the {@link Sponge}
@@ -46,25 +63,49 @@ import java.util.stream.Collectors;
  */
 public final class SpongeOreClient implements OreClient {
 
-    private final Game game;
-    private final PluginManager pluginManager;
-    private final URL rootUrl;
+    private static final String QUARANTINE_DIR = "quarantine";
+    private static final String METADATA_INDEX = "metadata-index.json";
+    private static final String JOURNAL = "pending.journal";
+    private static final String UPDATE_CACHE = "update-cache.json";
+
+    private final PluginEnvironment environment;
+    private final RepositoryPool repositories;
     private final Path modsDir, updatesDir, downloadsDir;
-    private final Map<String, Installation> newInstalls = new HashMap<>();
-    private final Map<String, Installation> updatesToInstall = new HashMap<>();
-    private final Set<PluginContainer> toRemove = new HashSet<>();
+    private final Map<String, Installation> newInstalls = new ConcurrentHashMap<>();
+    private final Map<String, Installation> updatesToInstall = new ConcurrentHashMap<>();
+    private final Set<PluginContainer> toRemove = ConcurrentHashMap.newKeySet();
     private final Set<String> ignoredPlugins;
+    private final TransferSettings transferSettings;
+    @Nullable private final ArtifactCache artifactCache;
+    @Nullable private final Path prefetchDir;
+    private final long prefetchBudget;
+    @Nullable private final DirectorySnapshots snapshots;
+    @Nullable private volatile String pendingRollback;
+    private final PluginMetadataIndex metadataIndex;
+    private final PendingJournal journal;
+    private final UpdateCache updateCache;
+    private final Map<String, String> reportedUpdates = new HashMap<>();
+    @Nullable private volatile DirectoryIndex directoryIndex;
     private Messenger messenger;
 
-    public SpongeOreClient(URL rootUrl, Path modsDir, Path updatesDir, Path downloadsDir,
-        Set<String> ignoredPlugins, Game game) {
-        this.rootUrl = rootUrl;
+    public SpongeOreClient(RepositoryPool repositories, Path modsDir, Path updatesDir, Path downloadsDir,
+        Set<String> ignoredPlugins, TransferSettings transferSettings, @Nullable ArtifactCache artifactCache,
+        @Nullable Path prefetchDir, long prefetchBudget, @Nullable DirectorySnapshots snapshots,
+        PluginEnvironment environment) {
+        this.repositories = repositories;
         this.modsDir = modsDir;
         this.updatesDir = updatesDir;
         this.downloadsDir = downloadsDir;
         this.ignoredPlugins = ignoredPlugins;
-        this.game = game;
-        this.pluginManager = game.getPluginManager();
+        this.transferSettings = transferSettings;
+        this.artifactCache = artifactCache;
+        this.prefetchDir = prefetchDir;
+        this.prefetchBudget = prefetchBudget;
+        this.snapshots = snapshots;
+        this.environment = environment;
+        this.metadataIndex = new PluginMetadataIndex(downloadsDir.resolve(METADATA_INDEX));
+        this.journal = new PendingJournal(downloadsDir.resolve(JOURNAL));
+        this.updateCache = new UpdateCache(downloadsDir.resolve(UPDATE_CACHE));
     }
 
     @Override
@@ -72,9 +113,109 @@ public final class SpongeOreClient implements OreClient {
         this.messenger = messenger;
     }
 
+    /**
+     * Returns the {@link TransferSettings} downloads are made with.
+     *
+     * @return Transfer settings
+     */
+    public TransferSettings getTransferSettings() {
+        return this.transferSettings;
+    }
+
+    @Override
+    public RepositoryPool getRepositories() {
+        return this.repositories;
+    }
+
+    /**
+     * Starts following changes to the mods and updates directories, so that
+     * installed and staged plugins are known without rescanning them and
+     * files removed by hand are noticed.
+     *
+     * @param debounce Milliseconds to let changes settle before indexing
+     *        them
+     * @throws IOException
+     */
+    public void watchDirectories(long debounce) throws IOException {
+        DirectoryIndex index = new DirectoryIndex(debounce, this.metadataIndex);
+        try {
+            index.watch(this.modsDir, true);
+            index.watch(this.updatesDir, false);
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+        this.directoryIndex = index;
+    }
+
+    /**
+     * Restores the installs, updates and removals that were still pending
+     * when the client last stopped without carrying them out, such as when
+     * the server crashed. Each is checked against the plugins on disk and
+     * loaded now, and whatever was carried out or undone since is dropped.
+     *
+     * @return Amount of operations restored
+     * @throws IOException
+     */
+    public int recoverPending() throws IOException {
+        int recovered = 0;
+        for (Record record : this.journal.replay()) {
+            String id = record.getPluginId();
+            Path path = record.getPath();
+            Optional<PluginContainer> loaded = this.environment.getPlugin(id);
+            switch (record.getType()) {
+                case INSTALL:
+                    // Loaded by now if the server got as far as restarting
+                    if (!loaded.isPresent() && path != null && exists(path)) {
+                        this.newInstalls.put(id, new Installation(id, record.getVersion(), path, record.getSize()));
+                        recovered++;
+                    }
+                    break;
+                case UPDATE:
+                    if (path == null || !exists(path))
+                        break;
+                    Optional<String> version = Optional.ofNullable(record.getVersion());
+                    if (!loaded.isPresent()) {
+                        // Stopped between deleting the old version and
+                        // moving the update in, finish installing it
+                        Path target = AtomicFiles.moveToAvailable(path, this.modsDir.resolve(path.getFileName()));
+                        refresh(path);
+                        refresh(target);
+                        this.newInstalls.put(id, new Installation(id, record.getVersion(), target));
+                        recovered++;
+                    } else if (!loaded.get().getVersion().equals(version)) {
+                        this.updatesToInstall.put(id, new Installation(id, record.getVersion(), path,
+                            record.getSize()));
+                        recovered++;
+                    } else {
+                        // Installed already
+                        delete(path);
+                        refresh(path);
+                    }
+                    break;
+                case REMOVE:
+                    if (loaded.isPresent()) {
+                        this.toRemove.add(loaded.get());
+                        recovered++;
+                    }
+                    break;
+            }
+        }
+        checkpointJournal();
+        return recovered;
+    }
+
     @Override
-    public URL getRootUrl() {
-        return this.rootUrl;
+    public void close() {
+        DirectoryIndex index = this.directoryIndex;
+        this.directoryIndex = null;
+        if (index != null)
+            index.close();
+        try {
+            this.journal.close();
+        } catch (IOException ignored) {
+            // Every record was flushed when it was appended
+        }
     }
 
     @Override
@@ -82,7 +223,7 @@ public final class SpongeOreClient implements OreClient {
         // Returns true if the plugin is loaded and is not going to be
         // uninstalled or if the plugin is unloaded and is going to be
         // installed
-        boolean loaded = this.pluginManager.isLoaded(id);
+        boolean loaded = this.environment.isLoaded(id);
         boolean removalPending = this.toRemove.stream()
             .filter(plugin -> plugin.getId().equals(id))
             .findAny()
@@ -103,7 +244,7 @@ public final class SpongeOreClient implements OreClient {
         if (install != null)
             return Optional.of(install);
 
-        return this.pluginManager.getPlugin(id).map(Installation::fromContainer);
+        return this.environment.getPlugin(id).map(Installation::fromContainer);
     }
 
     @Override
@@ -120,60 +261,11 @@ public final class SpongeOreClient implements OreClient {
             // Get intended version's dependencies
             sendMessage("Finding dependencies...");
 
-            String actualVersion = version;
-            if (version.equals(VERSION_RECOMMENDED)) {
-                actualVersion = getProject(id).orElseThrow(() -> new PluginNotFoundException(id))
-                        .getRecommendedVersion().getName();
-            }
-
-            Version toInstall = getModel(Version.class, VERSION, id, actualVersion)
-                .orElseThrow(() -> new PluginNotFoundException(id));
-
-            List<Dependency> dependencies = toInstall.getDependencies();
+            List<Dependency> dependencies = getVersion(id, version).getDependencies();
 
             // Check API version
-            if (!ignorePlatformVersion) {
-                dependencies.stream().filter(d -> d.getPluginId().equals(Platform.API_ID)).findAny().ifPresent(api -> {
-                    String requiredApiVersion = api.getVersion();
-                    String currentApiVersion = this.game.getPlatform().getApi().getVersion()
-                            .orElseThrow(() -> new IllegalStateException("no API version found?"));
-                    int firstStopIndex = requiredApiVersion.indexOf(".");
-                    int currentStopIndex = currentApiVersion.indexOf(".");
-                    if (currentStopIndex == -1) {
-                        throw new IllegalStateException(
-                                "server running an implementation with an invalid version string? ("
-                                        + currentApiVersion + ")");
-                    }
-
-                    if (firstStopIndex == -1) {
-                        // The dependency on Ore supplied an invalid API version
-                        sendMessage("Warning: Plugin declared a dependency to a malformed API version string! ("
-                                + requiredApiVersion + ")");
-                        return;
-                    }
-
-                    int requiredMajor = -1;
-                    int currentMajor;
-                    try {
-                        requiredMajor = Integer.parseInt(requiredApiVersion.substring(0, firstStopIndex));
-                    } catch (NumberFormatException e) {
-                        sendMessage("Warning: Plugin declared a dependency to a API version with a non-integer major "
-                                + "version! (" + requiredApiVersion + ")");
-                    }
-
-                    if (requiredMajor != -1) {
-                        try {
-                            currentMajor = Integer.parseInt(currentApiVersion.substring(0, currentStopIndex));
-                        } catch (NumberFormatException e) {
-                            throw new IllegalStateException("server running an implementation with a version string "
-                                    + "with a non-integer major version? (" + currentApiVersion + ")");
-                        }
-
-                        if (currentMajor != requiredMajor)
-                            throw new UnsupportedPlatformVersion(requiredApiVersion, currentApiVersion);
-                    }
-                });
-            }
+            if (!ignorePlatformVersion)
+                checkPlatformVersion(dependencies);
 
             dependencies = dependencies.stream()
                     .filter(d -> !d.getPluginId().equals(Platform.API_ID))
@@ -202,13 +294,13 @@ public final class SpongeOreClient implements OreClient {
         // A plugin can be uninstalled but still loaded, download to updates
         // dir if this is the case
         Path target;
-        if (this.pluginManager.isLoaded(id))
+        if (this.environment.isLoaded(id))
             this.downloadPlugin(id, version, this.updatesDir, this.updatesToInstall);
         else
             this.downloadPlugin(id, version, this.modsDir, this.newInstalls);
 
         // Remove from uninstallation list if present
-        this.toRemove.removeIf(plugin -> plugin.getId().equals(id));
+        cancelRemoval(id);
     }
 
     @Override
@@ -216,15 +308,17 @@ public final class SpongeOreClient implements OreClient {
         checkInstalled(id);
 
         // Add to removal set if loaded, delete file otherwise
-        if (this.pluginManager.isLoaded(id))
-            this.toRemove.add(this.pluginManager.getPlugin(id).get());
-        else
+        if (this.environment.isLoaded(id)) {
+            PluginContainer plugin = this.environment.getPlugin(id).get();
+            if (this.toRemove.add(plugin))
+                this.journal.append(Record.of(Record.Type.REMOVE, id, plugin.getVersion().orElse(null),
+                    plugin.getSource().orElse(null)));
+        } else
             // Delete pending installs
-            delete(this.newInstalls.remove(id).getPath());
+            clearPending(id, this.newInstalls);
 
         // Delete pending updates
-        if (this.updatesToInstall.containsKey(id))
-            delete(this.updatesToInstall.remove(id).getPath());
+        clearPending(id, this.updatesToInstall);
     }
 
     @Override
@@ -244,21 +338,134 @@ public final class SpongeOreClient implements OreClient {
 
     @Override
     public Map<PluginContainer, String> getAvailableUpdates() throws IOException {
-        Map<PluginContainer, String> updates = new HashMap<>();
-        for (PluginContainer plugin : this.pluginManager.getPlugins()) {
-            String id = plugin.getId();
-            if (this.ignoredPlugins.contains(id))
-                continue;
+        return findUpdates(0, 0);
+    }
 
-            getProject(id).ifPresent(project -> {
-                String recommended = project.getRecommendedVersion().getName();
-                if (!recommended.equals(plugin.getVersion().orElse(null)))
-                    updates.put(plugin, recommended);
-            });
+    @Override
+    public Map<PluginContainer, String> getNewUpdates(long maxAge, int maxRequests) throws IOException {
+        Map<PluginContainer, String> updates = findUpdates(maxAge, maxRequests);
+        Map<PluginContainer, String> newUpdates = new HashMap<>();
+        synchronized (this.reportedUpdates) {
+            for (Map.Entry<PluginContainer, String> update : updates.entrySet()) {
+                if (!update.getValue().equals(this.reportedUpdates.put(update.getKey().getId(), update.getValue())))
+                    newUpdates.put(update.getKey(), update.getValue());
+            }
+            // Report an update again if it goes away and comes back
+            Set<String> available = updates.keySet().stream()
+                .map(PluginContainer::getId)
+                .collect(Collectors.toSet());
+            this.reportedUpdates.keySet().retainAll(available);
+        }
+        return newUpdates;
+    }
+
+    private Map<PluginContainer, String> findUpdates(long maxAge, int maxRequests) throws IOException {
+        Map<String, PluginContainer> plugins = new HashMap<>();
+        for (PluginContainer plugin : this.environment.getPlugins()) {
+            if (!this.ignoredPlugins.contains(plugin.getId()))
+                plugins.put(plugin.getId(), plugin);
+        }
+
+        try {
+            for (String id : this.updateCache.getExpired(plugins.keySet(), maxAge, maxRequests))
+                checkProject(id);
+        } finally {
+            this.updateCache.retain(plugins.keySet());
+            try {
+                this.updateCache.save();
+            } catch (IOException ignored) {
+                // Only costs a full check next time
+            }
+        }
+
+        Map<PluginContainer, String> updates = new HashMap<>();
+        for (PluginContainer plugin : plugins.values()) {
+            String recommended = this.updateCache.getRecommended(plugin.getId());
+            if (recommended != null && !recommended.equals(plugin.getVersion().orElse(null)))
+                updates.put(plugin, recommended);
         }
         return updates;
     }
 
+    private void checkProject(String id) throws IOException {
+        try (ConditionalRead read = new ConditionalRead(this, PROJECT, this.updateCache.getValidator(id), id).open()) {
+            if (read.isNotModified()) {
+                this.updateCache.touch(id);
+                return;
+            }
+            Project project = read.read(Project.class);
+            this.updateCache.put(id, project != null ? project.getRecommendedVersion().getName() : null,
+                read.getValidator().orElse(null));
+        } catch (FileNotFoundException e) {
+            // Not on Ore
+            this.updateCache.put(id, null, null);
+        }
+    }
+
+    @Override
+    public int prefetchUpdates(Map<PluginContainer, String> updates) throws IOException {
+        if (this.prefetchDir == null)
+            return 0;
+        Map<String, String> wanted = new HashMap<>();
+        for (Map.Entry<PluginContainer, String> update : updates.entrySet())
+            wanted.put(AtomicFiles.toFileName(update.getKey().getId()), AtomicFiles.toFileName(update.getValue()));
+
+        // Forget versions that are no longer the available update
+        createDirectories(this.prefetchDir);
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> pluginDirs = list(this.prefetchDir)) {
+            for (Path pluginDir : (Iterable<Path>) pluginDirs::iterator) {
+                String versionDir = wanted.get(pluginDir.getFileName().toString());
+                if (versionDir == null || !isDirectory(pluginDir)) {
+                    stale.add(pluginDir);
+                    continue;
+                }
+                try (Stream<Path> versionDirs = list(pluginDir)) {
+                    versionDirs.filter(dir -> !dir.getFileName().toString().equals(versionDir)).forEach(stale::add);
+                }
+            }
+        }
+        for (Path path : stale)
+            Files.walkFileTree(path, DeleteFileVisitor.INSTANCE);
+
+        // Stay out of the way of anything the server is doing
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        int prefetched = 0;
+        try {
+            long used = getDiskUsage(this.prefetchDir);
+            for (Map.Entry<PluginContainer, String> update : updates.entrySet()) {
+                String id = update.getKey().getId();
+                if (findPrefetched(id, update.getValue()).isPresent())
+                    continue;
+
+                Version meta;
+                try {
+                    meta = getVersion(id, update.getValue());
+                } catch (PluginNotFoundException e) {
+                    continue;
+                }
+                if (used + meta.getFileSize() > this.prefetchBudget)
+                    continue;
+
+                Path versionDir = this.prefetchDir.resolve(AtomicFiles.toFileName(id))
+                    .resolve(AtomicFiles.toFileName(meta.getName()));
+                try {
+                    Path staged = scheduleDownload(id, meta,
+                        () -> stagePlugin(id, meta, versionDir, null));
+                    used += size(staged);
+                    prefetched++;
+                } catch (PluginNotFoundException | InvalidDownloadException e) {
+                    // Leave it to an explicit update to report
+                }
+            }
+        } finally {
+            thread.setPriority(priority);
+        }
+        return prefetched;
+    }
+
     @Override
     public void updatePlugin(String id, String version)
         throws IOException, PluginNotInstalledException, PluginNotFoundException, NoUpdateAvailableException {
@@ -268,6 +475,131 @@ public final class SpongeOreClient implements OreClient {
         this.downloadPlugin(id, version, this.updatesDir, this.updatesToInstall);
     }
 
+    @Override
+    public int exportBundle(Path file, Map<String, String> plugins) throws IOException, PluginNotFoundException {
+        Map<String, String> requested = new LinkedHashMap<>(plugins);
+        if (plugins.isEmpty()) {
+            for (PluginContainer plugin : this.environment.getPlugins()) {
+                if (!this.ignoredPlugins.contains(plugin.getId()) && plugin.getVersion().isPresent())
+                    requested.put(plugin.getId(), plugin.getVersion().get());
+            }
+        }
+
+        // Resolve every plugin and everything it depends on
+        sendMessage("Resolving dependencies...");
+        Map<String, Version> resolved = new LinkedHashMap<>();
+        resolveBundle(requested, !plugins.isEmpty(), resolved, new HashSet<>());
+
+        createDirectories(this.downloadsDir);
+        Path stagingDir = Files.createTempDirectory(this.downloadsDir, ".ore-bundle-");
+        try {
+            PluginBundle.Writer bundle = new PluginBundle.Writer(getRootUrl().toString());
+            for (Map.Entry<String, Version> plugin : resolved.entrySet()) {
+                String id = plugin.getKey();
+                Version meta = plugin.getValue();
+                sendMessage("Fetching " + id + " v" + meta.getName() + "...");
+                Path pluginDir = stagingDir.resolve(AtomicFiles.toFileName(id));
+                Path jar = scheduleDownload(id, meta, () -> stagePlugin(id, meta, pluginDir, null));
+                bundle.add(id, getProject(id).orElse(null), meta, jar);
+            }
+            bundle.writeTo(file);
+        } finally {
+            Files.walkFileTree(stagingDir, DeleteFileVisitor.INSTANCE);
+        }
+        return resolved.size();
+    }
+
+    private void resolveBundle(Map<String, String> plugins, boolean required, Map<String, Version> resolved,
+        Set<String> visiting) throws IOException, PluginNotFoundException {
+        for (Map.Entry<String, String> plugin : plugins.entrySet()) {
+            String id = plugin.getKey();
+            if (id.equals(Platform.API_ID) || resolved.containsKey(id) || !visiting.add(id))
+                continue;
+
+            Version meta;
+            try {
+                meta = getVersion(id, plugin.getValue());
+            } catch (PluginNotFoundException e) {
+                if (required)
+                    throw e;
+                sendMessage("Warning: Could not resolve " + id + " v" + plugin.getValue() + ", it is left out of "
+                    + "the bundle.");
+                continue;
+            }
+
+            // Dependencies go first so that they are installed first
+            Map<String, String> dependencies = new LinkedHashMap<>();
+            if (meta.getDependencies() != null) {
+                for (Dependency dependency : meta.getDependencies())
+                    dependencies.put(dependency.getPluginId(), dependency.getVersion());
+            }
+            resolveBundle(dependencies, false, resolved, visiting);
+            resolved.put(id, meta);
+        }
+    }
+
+    @Override
+    public int importBundle(Path file, boolean ignorePlatformVersion) throws IOException {
+        try (PluginBundle.Reader bundle = PluginBundle.read(new BufferedInputStream(newInputStream(file)))) {
+            // Check the whole bundle before installing any of it
+            Map<String, PluginBundle.Plugin> pending = new HashMap<>();
+            for (PluginBundle.Plugin plugin : bundle.getManifest().getPlugins()) {
+                if (!ignorePlatformVersion)
+                    checkPlatformVersion(plugin.getDependencies());
+                String id = plugin.getPluginId();
+                Optional<Installation> installed = getInstallation(id);
+                if (installed.isPresent() && installed.get().getVersion().equals(plugin.getVersion()))
+                    sendMessage(id + " v" + plugin.getVersion() + " is already installed.");
+                else
+                    pending.put(id, plugin);
+            }
+
+            int imported = 0;
+            PluginBundle.Plugin plugin;
+            while ((plugin = bundle.next()) != null) {
+                if (pending.remove(plugin.getPluginId()) != null) {
+                    importPlugin(plugin, bundle.openFile());
+                    imported++;
+                }
+            }
+            if (!pending.isEmpty())
+                throw new IOException("bundle is missing the files of " + pending.keySet());
+            return imported;
+        }
+    }
+
+    private void importPlugin(PluginBundle.Plugin plugin, InputStream in) throws IOException {
+        String id = plugin.getPluginId();
+        String version = plugin.getVersion();
+        sendMessage("Installing " + id + " v" + version + "...");
+
+        // A plugin can be uninstalled but still loaded, install to updates
+        // dir if this is the case
+        boolean loaded = this.environment.isLoaded(id);
+        Path targetDir = loaded ? this.updatesDir : this.modsDir;
+        Map<String, Installation> downloadMap = loaded ? this.updatesToInstall : this.newInstalls;
+
+        // Checked while it is copied so that the file is only read once
+        createDirectories(this.updatesDir);
+        Path temp = Files.createTempFile(this.updatesDir, ".ore-", ".tmp");
+        try {
+            HashingInputStream hashing = new HashingInputStream(Hashing.md5(), in);
+            long size = Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (size != plugin.getSize())
+                throw new InvalidDownloadException(id, version, "expected " + plugin.getSize() + " bytes but "
+                    + "the bundle holds " + size);
+            if (plugin.getMd5() != null && !plugin.getMd5().equalsIgnoreCase(hashing.hash().toString()))
+                throw new InvalidDownloadException(id, version, "MD5 hash does not match");
+
+            clearPending(id, downloadMap);
+            Path target = AtomicFiles.moveToAvailable(temp, targetDir.resolve(plugin.getFileName()));
+            putPending(id, new Installation(id, version, target, plugin.getSize()), downloadMap);
+            cancelRemoval(id);
+        } finally {
+            deleteIfExists(temp);
+        }
+    }
+
     @Override
     public boolean hasUninstalledUpdates() {
         return !this.updatesToInstall.isEmpty();
@@ -280,32 +612,159 @@ public final class SpongeOreClient implements OreClient {
 
     @Override
     public void installUpdates() throws IOException {
-        Map<Path, List<PluginMetadata>> installedMetadata = new PluginMetadataScanner(this.modsDir).scan();
-        for (String pluginId : this.updatesToInstall.keySet()) {
-            // Delete obsolete version
-            for (Path installedPath : installedMetadata.keySet()) {
-                boolean match = installedMetadata.get(installedPath).stream()
-                    .filter(meta -> meta.getId().equals(pluginId))
-                    .findAny()
-                    .isPresent();
-                if (match) {
-                    delete(installedPath);
-                    break;
+        forgetRemoved();
+        takeSnapshot();
+        applyUpdates(new ParallelApplier(1, 0));
+    }
+
+    @Override
+    public int applyPending(int parallelism, long timeBudget) throws IOException {
+        String rollback = this.pendingRollback;
+        if (rollback != null) {
+            restoreSnapshot(rollback);
+            return 0;
+        }
+
+        forgetRemoved();
+        ParallelApplier applier = new ParallelApplier(parallelism, timeBudget);
+        if (hasUninstalledUpdates() || hasPendingUninstallations())
+            takeSnapshot();
+        IOException failure = null;
+        try {
+            if (hasUninstalledUpdates())
+                applyUpdates(applier);
+        } catch (IOException e) {
+            failure = e;
+        }
+        try {
+            if (hasPendingUninstallations())
+                applyUninstallations(applier);
+        } catch (IOException e) {
+            if (failure == null)
+                failure = e;
+            else
+                failure.addSuppressed(e);
+        }
+        if (failure != null)
+            throw failure;
+        return this.updatesToInstall.size() + this.toRemove.size();
+    }
+
+    private void applyUpdates(ParallelApplier applier) throws IOException {
+        // Turn away staged files damaged since they were downloaded, the
+        // plugins stay at the version they are at
+        Map<Installation, String> rejected = PreflightCheck.checkAll(this.updatesToInstall.values(),
+            PluginMetadataScanner.DEFAULT_PARALLELISM);
+        for (Map.Entry<Installation, String> update : rejected.entrySet())
+            rejectUpdate(update.getKey(), update.getValue());
+
+        DirectoryIndex index = this.directoryIndex;
+        Map<Path, List<PluginMetadata>> installedMetadata = index != null ? index.getPluginMetadata(this.modsDir)
+            : new PluginMetadataScanner(this.modsDir, PluginMetadataScanner.DEFAULT_PARALLELISM,
+                this.metadataIndex).scan();
+        // Find the files of every plugin once rather than searching every
+        // file for every update
+        Map<String, List<Path>> providers = new HashMap<>();
+        for (Map.Entry<Path, List<PluginMetadata>> installed : installedMetadata.entrySet()) {
+            for (PluginMetadata meta : installed.getValue())
+                providers.computeIfAbsent(meta.getId(), id -> new ArrayList<>(1)).add(installed.getKey());
+        }
+
+        // Updates replacing the same file have to be applied one after
+        // another, everything else can be applied at once
+        List<UpdateGroup> groups = new ArrayList<>();
+        for (Installation update : this.updatesToInstall.values()) {
+            UpdateGroup group = new UpdateGroup();
+            group.updates.add(update);
+            group.files.addAll(providers.getOrDefault(update.getPluginId(), Collections.emptyList()));
+            for (Iterator<UpdateGroup> it = groups.iterator(); it.hasNext();) {
+                UpdateGroup other = it.next();
+                if (!Collections.disjoint(group.files, other.files)) {
+                    group.updates.addAll(other.updates);
+                    group.files.addAll(other.files);
+                    it.remove();
                 }
             }
+            groups.add(group);
+        }
+
+        Set<String> updated = new HashSet<>(this.updatesToInstall.keySet());
+        List<ParallelApplier.Operation> operations = new ArrayList<>();
+        for (UpdateGroup group : groups) {
+            operations.add(changedDirs -> {
+                Set<Path> deleted = new HashSet<>();
+                for (Installation update : group.updates)
+                    applyUpdate(update, providers, installedMetadata, updated, deleted, changedDirs);
+            });
+        }
+
+        try {
+            applier.apply(operations);
+        } finally {
+            checkpointJournal();
+        }
+
+        // Clear out the updates directory but keep partial downloads and
+        // deferred updates around
+        Set<Path> pending = this.updatesToInstall.values().stream()
+            .map(update -> update.getPath().toAbsolutePath().normalize())
+            .collect(Collectors.toSet());
+        List<Path> leftovers;
+        if (index != null)
+            leftovers = index.list(this.updatesDir);
+        else {
+            try (Stream<Path> files = list(this.updatesDir)) {
+                leftovers = files.collect(Collectors.toList());
+            }
+        }
+        for (Path leftover : leftovers) {
+            if (!PartialDownload.isPartial(leftover) && !pending.contains(leftover.toAbsolutePath().normalize())) {
+                Files.walkFileTree(leftover, DeleteFileVisitor.INSTANCE);
+                refresh(leftover);
+            }
+        }
+    }
+
+    private void rejectUpdate(Installation update, String reason) throws IOException {
+        Path quarantineDir = this.downloadsDir.resolve(QUARANTINE_DIR);
+        Path staged = update.getPath();
+        createDirectories(quarantineDir);
+        Files.move(staged, quarantineDir.resolve(staged.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        refresh(staged);
+        this.updatesToInstall.remove(update.getPluginId(), update);
+        this.journal.append(Record.cancel(Record.Type.UPDATE, update.getPluginId()));
+        sendMessage("Warning: The update of " + update.getPluginId() + " to v" + update.getVersion() + " was not "
+            + "installed, its file is damaged (" + reason + "). It was moved to " + quarantineDir + ".");
+    }
 
-            // Install new update
-            Path updatePath = this.updatesToInstall.get(pluginId).getPath();
-            Path target = this.modsDir.resolve(updatePath.getFileName());
-            String fileName = target.getFileName().toString();
-            String name = fileName.substring(0, fileName.lastIndexOf('.'));
-            target = findAvailablePath(name, target);
+    private void applyUpdate(Installation update, Map<String, List<Path>> providers,
+        Map<Path, List<PluginMetadata>> installedMetadata, Set<String> updated, Set<Path> deleted,
+        Set<Path> changedDirs) throws IOException {
+        String pluginId = update.getPluginId();
+        Path updatePath = update.getPath();
 
-            createDirectories(this.modsDir);
-            move(updatePath, target);
+        // Delete obsolete versions, every copy of them
+        List<Path> obsolete = providers.getOrDefault(pluginId, Collections.emptyList());
+        if (obsolete.size() > 1) {
+            sendMessage("Found " + obsolete.size() + " files providing " + pluginId + ", replacing all of them: "
+                + obsolete.stream().map(path -> path.getFileName().toString()).collect(Collectors.joining(", ")));
+        }
+        for (Path installedPath : obsolete) {
+            if (!deleted.add(installedPath))
+                // Provides a plugin that was updated already
+                continue;
+            warnCoProvided(pluginId, installedPath, installedMetadata.get(installedPath), updated, updatePath);
+            delete(installedPath);
+            refresh(installedPath);
+            changedDirs.add(installedPath.toAbsolutePath().getParent());
         }
 
-        Files.walkFileTree(this.updatesDir, DeleteFileVisitor.INSTANCE);
+        // Install new update, flushed to disk along with everything else
+        refresh(AtomicFiles.moveToAvailable(updatePath, this.modsDir.resolve(updatePath.getFileName()), false));
+        refresh(updatePath);
+        changedDirs.add(this.modsDir.toAbsolutePath());
+        changedDirs.add(updatePath.toAbsolutePath().getParent());
+        this.updatesToInstall.remove(pluginId, update);
     }
 
     @Override
@@ -326,14 +785,79 @@ public final class SpongeOreClient implements OreClient {
 
     @Override
     public void completeUninstallations() throws IOException {
-        // Perform uninstalls
+        takeSnapshot();
+        applyUninstallations(new ParallelApplier(1, 0));
+    }
+
+    private void applyUninstallations(ParallelApplier applier) throws IOException {
+        List<ParallelApplier.Operation> operations = new ArrayList<>();
         for (PluginContainer plugin : this.toRemove) {
-            Optional<Path> pathOpt = plugin.getSource();
-            if (pathOpt.isPresent())
-                deleteIfExists(pathOpt.get());
+            operations.add(changedDirs -> {
+                Optional<Path> pathOpt = plugin.getSource();
+                if (pathOpt.isPresent()) {
+                    deleteIfExists(pathOpt.get());
+                    refresh(pathOpt.get());
+                    changedDirs.add(pathOpt.get().toAbsolutePath().getParent());
+                }
+                this.toRemove.remove(plugin);
+            });
+        }
+        try {
+            applier.apply(operations);
+        } finally {
+            checkpointJournal();
+        }
+    }
+
+    @Override
+    public List<String> getSnapshots() throws IOException {
+        return this.snapshots != null ? this.snapshots.list() : Collections.emptyList();
+    }
+
+    @Override
+    public String rollback(@Nullable String snapshot) throws IOException, SnapshotNotFoundException {
+        List<String> snapshots = getSnapshots();
+        String name = snapshot != null ? snapshot : snapshots.isEmpty() ? null : snapshots.get(0);
+        if (name == null || !snapshots.contains(name))
+            throw new SnapshotNotFoundException(snapshot);
+        this.pendingRollback = name;
+        return name;
+    }
+
+    @Override
+    public Optional<String> getPendingRollback() {
+        return Optional.ofNullable(this.pendingRollback);
+    }
+
+    @Override
+    public void cancelRollback() {
+        this.pendingRollback = null;
+    }
+
+    private void takeSnapshot() {
+        if (this.snapshots == null)
+            return;
+        try {
+            this.snapshots.take();
+        } catch (IOException e) {
+            sendMessage("Warning: Could not take a snapshot of the mods directory, these changes cannot be rolled "
+                + "back: " + e);
         }
     }
 
+    private void restoreSnapshot(String name) throws IOException {
+        // Whatever was pending is superseded by the snapshot, plugins
+        // installed since are removed along with everything else
+        for (String id : new ArrayList<>(this.updatesToInstall.keySet()))
+            clearPending(id, this.updatesToInstall);
+        this.newInstalls.clear();
+        this.toRemove.clear();
+        int changed = this.snapshots.restore(name);
+        this.pendingRollback = null;
+        checkpointJournal();
+        sendMessage("Restored snapshot " + name + " of the mods directory, " + changed + " files changed.");
+    }
+
     @Override
     public Optional<User> getUser(String username) throws IOException {
         return getModel(User.class, USER, username);
@@ -352,36 +876,295 @@ public final class SpongeOreClient implements OreClient {
         }
     }
 
+    private Version getVersion(String id, String version) throws IOException, PluginNotFoundException {
+        Optional<Version> versionOpt;
+        if (version.equals(VERSION_RECOMMENDED))
+            versionOpt = getProject(id).map(Project::getRecommendedVersion);
+        else
+            versionOpt = getModel(Version.class, VERSION, id, version);
+        return versionOpt.orElseThrow(() -> new PluginNotFoundException(id));
+    }
+
     private Path downloadPlugin(String id, String version, Path targetDir, Map<String, Installation> downloadMap)
         throws IOException, PluginNotFoundException {
-        // Initialize download
+        // Resolve the exact version so its size and hash can be checked
+        Version meta = getVersion(id, version);
+
+        // Share the download with anyone else fetching this version right now
+        Path result = scheduleDownload(id, meta, () -> {
+            Optional<Path> prefetched = findPrefetched(id, meta.getName());
+            if (prefetched.isPresent()) {
+                // Already fetched in the background, just move it in place
+                clearPending(id, downloadMap);
+                return AtomicFiles.moveToAvailable(prefetched.get(), targetDir.resolve(prefetched.get().getFileName()));
+            }
+
+            if (targetDir.equals(this.updatesDir) && this.transferSettings.isDeltaUpdates()) {
+                Optional<Path> patched = patchPlugin(id, meta, downloadMap);
+                if (patched.isPresent())
+                    return patched.get();
+            }
+            return stagePlugin(id, meta, targetDir, downloadMap);
+        });
+
+        Path target = result;
+        if (!result.getParent().equals(targetDir)) {
+            // It was downloaded for another directory, place our own link
+            clearPending(id, downloadMap);
+            target = AtomicFiles.linkToAvailable(result, targetDir.resolve(result.getFileName()));
+        }
+
+        if (downloadMap != null)
+            putPending(id, new Installation(id, version, target, meta.getFileSize()), downloadMap);
+        return target;
+    }
+
+    private Path scheduleDownload(String id, Version meta, DownloadScheduler.Download download) throws IOException {
+        return this.transferSettings.getScheduler().submit(id + '@' + meta.getName(), download);
+    }
+
+    private Path stagePlugin(String id, Version meta, Path targetDir, Map<String, Installation> downloadMap)
+        throws IOException, PluginNotFoundException {
+        if (this.artifactCache != null && meta.getMd5() != null) {
+            // Fetch through the cache shared with other servers on this host
+            Path cached = this.artifactCache.computeIfAbsent(meta.getMd5(),
+                entryDir -> fetchPlugin(id, meta, entryDir, entryDir, null));
+            clearPending(id, downloadMap);
+            return AtomicFiles.linkToAvailable(cached, targetDir.resolve(cached.getFileName()));
+        }
+
+        // New installs are kept in the updates directory until complete so
+        // that the mods directory never contains a partial file
+        Path stagingDir = targetDir.equals(this.modsDir) ? this.updatesDir : targetDir;
+        return fetchPlugin(id, meta, stagingDir, targetDir, downloadMap);
+    }
+
+    private Optional<Path> patchPlugin(String id, Version meta, Map<String, Installation> downloadMap)
+        throws IOException {
+        // Only worth asking for if we know exactly what is installed
+        Optional<PluginContainer> plugin = this.environment.getPlugin(id);
+        if (!plugin.isPresent() || meta.getMd5() == null)
+            return Optional.empty();
+        Optional<String> baseVersion = plugin.get().getVersion();
+        Optional<Path> base = plugin.get().getSource();
+        if (!baseVersion.isPresent() || !base.isPresent() || baseVersion.get().equals(meta.getName()))
+            return Optional.empty();
+        Optional<Version> baseMeta = getModel(Version.class, VERSION, id, baseVersion.get());
+        if (!baseMeta.isPresent() || baseMeta.get().getMd5() == null
+            || !baseMeta.get().getMd5().equalsIgnoreCase(hashFile(base.get())))
+            return Optional.empty();
+
+        DeltaDownload delta;
+        try {
+            delta = new DeltaDownload(this, id, meta.getName(), baseVersion.get())
+                .scheduledBy(this.transferSettings.getScheduler())
+                .open();
+        } catch (FileNotFoundException e) {
+            // Repository does not serve patches for this version
+            return Optional.empty();
+        }
+
+        createDirectories(this.updatesDir);
+        Path patched = Files.createTempFile(this.updatesDir, ".ore-", ".tmp");
+        try {
+            delta.applyTo(base.get(), patched);
+            if (!meta.getMd5().equalsIgnoreCase(hashFile(patched))) {
+                sendMessage("Patch for " + id + " v" + meta.getName() + " did not apply cleanly, downloading the "
+                    + "full file instead.");
+                return Optional.empty();
+            }
+            clearPending(id, downloadMap);
+            Path target = this.updatesDir.resolve(delta.getFileName().get());
+            return Optional.of(AtomicFiles.moveToAvailable(patched, target));
+        } catch (IOException e) {
+            sendMessage("Patch for " + id + " v" + meta.getName() + " could not be applied, downloading the full file "
+                + "instead.");
+            return Optional.empty();
+        } finally {
+            delta.close();
+            deleteIfExists(patched);
+        }
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.md5()).toString();
+    }
+
+    private Optional<Path> findPrefetched(String id, String version) throws IOException {
+        if (this.prefetchDir == null)
+            return Optional.empty();
+        Path versionDir = this.prefetchDir.resolve(AtomicFiles.toFileName(id)).resolve(AtomicFiles.toFileName(version));
+        if (!isDirectory(versionDir))
+            return Optional.empty();
+        try (Stream<Path> files = list(versionDir)) {
+            return files.filter(path -> path.toString().endsWith(".jar")).findFirst();
+        }
+    }
+
+    private static long getDiskUsage(Path dir) throws IOException {
+        long used = 0;
+        try (Stream<Path> files = walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file))
+                    used += size(file);
+            }
+        }
+        return used;
+    }
+
+    private Path fetchPlugin(String id, Version version, Path stagingDir, Path targetDir,
+        Map<String, Installation> downloadMap) throws IOException, PluginNotFoundException {
+        // Resume any earlier attempt at this version with a ranged request
+        createDirectories(stagingDir);
+        PartialDownload partial = PartialDownload.open(stagingDir, id, version.getName());
         PluginDownload download;
         try {
-            download = new PluginDownload(this, id, version).open();
+            download = new PluginDownload(this, id, version.getName())
+                .scheduledBy(this.transferSettings.getScheduler())
+                .resuming(partial)
+                .open();
         } catch (FileNotFoundException e) {
             throw new PluginNotFoundException(id);
         }
 
+        try {
+            download.transferTo(partial, this.transferSettings);
+        } finally {
+            download.close();
+        }
+        partial.verify(id, version, this.downloadsDir.resolve(QUARANTINE_DIR));
+        clearPending(id, downloadMap);
+
+        // Move to target file
+        return partial.promote(targetDir.resolve(download.getFileName().get()));
+    }
+
+    private void checkPlatformVersion(List<Dependency> dependencies) throws UnsupportedPlatformVersion {
+        dependencies.stream().filter(d -> d.getPluginId().equals(Platform.API_ID)).findAny().ifPresent(api -> {
+            String requiredApiVersion = api.getVersion();
+            Optional<String> apiVersion = this.environment.getApiVersion();
+            if (!apiVersion.isPresent())
+                // Nothing to check against
+                return;
+            String currentApiVersion = apiVersion.get();
+            int firstStopIndex = requiredApiVersion.indexOf(".");
+            int currentStopIndex = currentApiVersion.indexOf(".");
+            if (currentStopIndex == -1) {
+                throw new IllegalStateException(
+                        "server running an implementation with an invalid version string? ("
+                                + currentApiVersion + ")");
+            }
+
+            if (firstStopIndex == -1) {
+                // The dependency on Ore supplied an invalid API version
+                sendMessage("Warning: Plugin declared a dependency to a malformed API version string! ("
+                        + requiredApiVersion + ")");
+                return;
+            }
+
+            int requiredMajor = -1;
+            int currentMajor;
+            try {
+                requiredMajor = Integer.parseInt(requiredApiVersion.substring(0, firstStopIndex));
+            } catch (NumberFormatException e) {
+                sendMessage("Warning: Plugin declared a dependency to a API version with a non-integer major "
+                        + "version! (" + requiredApiVersion + ")");
+            }
+
+            if (requiredMajor != -1) {
+                try {
+                    currentMajor = Integer.parseInt(currentApiVersion.substring(0, currentStopIndex));
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException("server running an implementation with a version string "
+                            + "with a non-integer major version? (" + currentApiVersion + ")");
+                }
+
+                if (currentMajor != requiredMajor)
+                    throw new UnsupportedPlatformVersion(requiredApiVersion, currentApiVersion);
+            }
+        });
+    }
+
+    private void clearPending(String id, Map<String, Installation> downloadMap) throws IOException {
         // Override already pending installs/updates
-        if (downloadMap != null && downloadMap.containsKey(id))
-            delete(downloadMap.remove(id).getPath());
+        if (downloadMap != null && downloadMap.containsKey(id)) {
+            Path pending = downloadMap.remove(id).getPath();
+            delete(pending);
+            refresh(pending);
+            this.journal.append(Record.cancel(getPendingType(downloadMap), id));
+        }
+    }
 
-        // Copy to target file
-        Path target = findAvailablePath(download.getName().get(), targetDir.resolve(download.getFileName().get()));
-        createDirectories(target.getParent());
-        createFile(target);
+    private void putPending(String id, Installation installation, Map<String, Installation> downloadMap)
+        throws IOException {
+        // Index the file before publishing it, so that it is never seen as
+        // pending but missing
+        refresh(installation.getPath());
+        downloadMap.put(id, installation);
+        this.journal.append(Record.of(getPendingType(downloadMap), installation));
+    }
 
-        copy(download.getInputStream().get(), target, StandardCopyOption.REPLACE_EXISTING);
-        if (downloadMap != null)
-            downloadMap.put(id, new Installation(id, version, target));
-        return target;
+    private void cancelRemoval(String id) throws IOException {
+        if (this.toRemove.removeIf(plugin -> plugin.getId().equals(id)))
+            this.journal.append(Record.cancel(Record.Type.REMOVE, id));
     }
 
-    private Path findAvailablePath(String name, Path target) {
-        int conflicts = 0;
-        while (exists(target))
-            target = target.getParent().resolve(name + " (" + ++conflicts + ").jar");
-        return target;
+    private Record.Type getPendingType(Map<String, Installation> downloadMap) {
+        return downloadMap == this.updatesToInstall ? Record.Type.UPDATE : Record.Type.INSTALL;
+    }
+
+    private void checkpointJournal() throws IOException {
+        // Compact the journal down to what is still pending
+        List<Record> pending = new ArrayList<>();
+        for (Installation install : this.newInstalls.values())
+            pending.add(Record.of(Record.Type.INSTALL, install));
+        for (Installation update : this.updatesToInstall.values())
+            pending.add(Record.of(Record.Type.UPDATE, update));
+        for (PluginContainer plugin : this.toRemove) {
+            pending.add(Record.of(Record.Type.REMOVE, plugin.getId(), plugin.getVersion().orElse(null),
+                plugin.getSource().orElse(null)));
+        }
+        this.journal.checkpoint(pending);
+    }
+
+    private void warnCoProvided(String pluginId, Path installedPath, List<PluginMetadata> installedMetadata,
+        Set<String> updated, Path updatePath) {
+        Set<String> removed = installedMetadata.stream()
+            .map(PluginMetadata::getId)
+            .filter(id -> !id.equals(pluginId) && !updated.contains(id))
+            .collect(Collectors.toCollection(TreeSet::new));
+        if (removed.isEmpty())
+            return;
+
+        // Fine if the update provides them as well
+        try {
+            List<PluginMetadata> updateMetadata = PluginMetadataScanner.read(updatePath);
+            if (updateMetadata != null)
+                updateMetadata.forEach(meta -> removed.remove(meta.getId()));
+        } catch (IOException ignored) {
+        }
+        if (!removed.isEmpty()) {
+            sendMessage("Warning: " + installedPath.getFileName() + " also provides " + String.join(", ", removed)
+                + ", which " + (removed.size() == 1 ? "is" : "are") + " removed by the update of " + pluginId + ".");
+        }
+    }
+
+    private void forgetRemoved() {
+        // Downloaded files may have been removed by hand since, checked once
+        // before applying rather than on every query
+        this.newInstalls.values().removeIf(install -> !exists(install.getPath()));
+        this.updatesToInstall.values().removeIf(update -> !exists(update.getPath()));
+    }
+
+    private boolean exists(Path file) {
+        DirectoryIndex index = this.directoryIndex;
+        return index != null ? index.exists(file) : Files.exists(file);
+    }
+
+    private void refresh(Path file) {
+        DirectoryIndex index = this.directoryIndex;
+        if (index != null)
+            index.refresh(file);
     }
 
     private void checkNotInstalled(String id) throws PluginAlreadyInstalledException {
@@ -407,19 +1190,94 @@ public final class SpongeOreClient implements OreClient {
      */
     public static SpongeOreClient forPlugin(SpongeOrePlugin plugin) {
         ConfigurationNode config = plugin.getConfigRoot();
-        final TypeToken<Path> PATH_TOKEN = TypeToken.of(Path.class);
+        SpongeOreClient client;
         try {
-            return new SpongeOreClient(
-                config.getNode("repositoryUrl").getValue(TypeToken.of(URL.class)),
-                config.getNode("installationDirectory").getValue(PATH_TOKEN),
-                config.getNode("updatesDirectory").getValue(PATH_TOKEN),
-                config.getNode("downloadsDirectory").getValue(PATH_TOKEN),
-                new HashSet<>(config.getNode("ignoredPlugins").getList(TypeToken.of(String.class))),
-                plugin.game);
+            client = fromConfig(config, new SpongePluginEnvironment(plugin.game));
         } catch (ObjectMappingException e) {
             plugin.log.error("A fatal error occurred while loading your Ore client settings.", e);
             return null;
         }
+
+        ConfigurationNode indexNode = config.getNode("directoryIndex");
+        if (indexNode.getNode("enabled").getBoolean(true)) {
+            try {
+                client.watchDirectories(indexNode.getNode("debounce").getLong(250));
+            } catch (IOException e) {
+                plugin.log.warn("Failed to watch the plugin directories, they are rescanned instead.", e);
+            }
+        }
+
+        try {
+            int recovered = client.recoverPending();
+            if (recovered > 0)
+                plugin.log.info("Recovered " + recovered + " pending plugin operation(s) from before the last stop.");
+        } catch (IOException e) {
+            plugin.log.warn("Failed to read the journal of pending plugin operations.", e);
+        }
+        return client;
+    }
+
+    /**
+     * Constructs a new client from the specified config that installs to the
+     * specified {@link PluginEnvironment}.
+     *
+     * @param config Root node of config
+     * @param environment Environment to install to
+     * @return New client
+     * @throws ObjectMappingException if the config is invalid
+     */
+    public static SpongeOreClient fromConfig(ConfigurationNode config, PluginEnvironment environment)
+        throws ObjectMappingException {
+        final TypeToken<Path> PATH_TOKEN = TypeToken.of(Path.class);
+        Path modsDir = config.getNode("installationDirectory").getValue(PATH_TOKEN);
+        Path downloadsDir = config.getNode("downloadsDirectory").getValue(PATH_TOKEN);
+        ArtifactCache artifactCache = null;
+        ConfigurationNode cacheNode = config.getNode("artifactCache");
+        if (cacheNode.getNode("enabled").getBoolean())
+            artifactCache = new ArtifactCache(cacheNode.getNode("directory").getValue(PATH_TOKEN,
+                Paths.get(System.getProperty("user.home"), ".ore", "cache")));
+
+        Path prefetchDir = null;
+        ConfigurationNode prefetchNode = config.getNode("prefetch");
+        if (prefetchNode.getNode("enabled").getBoolean())
+            prefetchDir = prefetchNode.getNode("directory").getValue(PATH_TOKEN, Paths.get("prefetch"));
+
+        DirectorySnapshots snapshots = null;
+        ConfigurationNode snapshotsNode = config.getNode("snapshots");
+        if (snapshotsNode.getNode("enabled").getBoolean(true))
+            snapshots = new DirectorySnapshots(modsDir, snapshotsNode.getNode("directory").getValue(PATH_TOKEN,
+                downloadsDir.resolve("snapshots")), snapshotsNode.getNode("retain").getInt(3));
+
+        // Mirrors are interchangeable with the main repository
+        final TypeToken<URL> URL_TOKEN = TypeToken.of(URL.class);
+        ConfigurationNode repositoriesNode = config.getNode("repositories");
+        List<URL> repositoryUrls = new ArrayList<>();
+        repositoryUrls.add(config.getNode("repositoryUrl").getValue(URL_TOKEN));
+        repositoryUrls.addAll(repositoriesNode.getNode("mirrors").getList(URL_TOKEN));
+
+        return new SpongeOreClient(
+            new RepositoryPool(repositoryUrls,
+                TimeUnit.SECONDS.toMillis(repositoriesNode.getNode("failureCooldown").getLong(30)),
+                new RequestHedger(
+                    repositoriesNode.getNode("hedgePercentile").getDouble(0),
+                    repositoriesNode.getNode("hedgeMinDelay").getLong(50))),
+            modsDir,
+            config.getNode("updatesDirectory").getValue(PATH_TOKEN),
+            downloadsDir,
+            new HashSet<>(config.getNode("ignoredPlugins").getList(TypeToken.of(String.class))),
+            TransferSettings.fromConfig(config.getNode("transfers")),
+            artifactCache,
+            prefetchDir,
+            prefetchNode.getNode("maxBytes").getLong(268435456),
+            snapshots,
+            environment);
+    }
+
+    private static final class UpdateGroup {
+
+        final List<Installation> updates = new ArrayList<>();
+        final Set<Path> files = new HashSet<>();
+
     }
 
 }
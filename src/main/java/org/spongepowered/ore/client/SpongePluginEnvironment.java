@@ -0,0 +1,49 @@
+package org.spongepowered.ore.client;
+
+import org.spongepowered.api.Game;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.plugin.PluginManager;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * A {@link PluginEnvironment} of the plugins loaded by a running
+ * {@link Game}.
+ */
+public final class SpongePluginEnvironment implements PluginEnvironment {
+
+    private final Game game;
+    private final PluginManager pluginManager;
+
+    /**
+     * Constructs a new environment of the specified game.
+     *
+     * @param game Running game
+     */
+    public SpongePluginEnvironment(Game game) {
+        this.game = game;
+        this.pluginManager = game.getPluginManager();
+    }
+
+    @Override
+    public Collection<PluginContainer> getPlugins() {
+        return this.pluginManager.getPlugins();
+    }
+
+    @Override
+    public Optional<PluginContainer> getPlugin(String id) {
+        return this.pluginManager.getPlugin(id);
+    }
+
+    @Override
+    public boolean isLoaded(String id) {
+        return this.pluginManager.isLoaded(id);
+    }
+
+    @Override
+    public Optional<String> getApiVersion() {
+        return this.game.getPlatform().getApi().getVersion();
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.spongepowered.ore.client;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the recommended version of the Ore project of every installed
+ * plugin, along with the validator the server sent it with, so that checking
+ * for updates only has to ask for projects whose entry is old and can do so
+ * with a conditional request.
+ */
+public final class UpdateCache {
+
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<String, Entry>>() {}.getType();
+
+    private final JsonIndex<Entry> index;
+
+    /**
+     * Constructs a new cache stored at the specified file.
+     *
+     * @param file File to store the cache at
+     */
+    public UpdateCache(Path file) {
+        this.index = new JsonIndex<>(file, ENTRIES_TYPE);
+    }
+
+    /**
+     * Returns the specified projects whose entry is older than the specified
+     * age, oldest first and projects never checked before any other.
+     *
+     * @param ids Project IDs
+     * @param maxAge Milliseconds an entry stays fresh for
+     * @param max Projects to return at most, 0 for no limit
+     * @return IDs of projects to check again
+     */
+    synchronized List<String> getExpired(Collection<String> ids, long maxAge, int max) {
+        long now = System.currentTimeMillis();
+        Map<String, Entry> entries = getEntries();
+        return ids.stream()
+            .filter(id -> {
+                Entry entry = entries.get(id);
+                return entry == null || now - entry.checked >= maxAge;
+            })
+            .sorted(Comparator.comparingLong(id -> {
+                Entry entry = entries.get(id);
+                return entry != null ? entry.checked : Long.MIN_VALUE;
+            }))
+            .limit(max > 0 ? max : Long.MAX_VALUE)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the validator the entry of the specified project was last
+     * stored with, to check it again conditionally.
+     *
+     * @param id Project ID
+     * @return ETag or Last-Modified value, null if none
+     */
+    @Nullable
+    synchronized String getValidator(String id) {
+        Entry entry = getEntries().get(id);
+        return entry != null ? entry.validator : null;
+    }
+
+    /**
+     * Returns the recommended version of the specified project as of when it
+     * was last checked.
+     *
+     * @param id Project ID
+     * @return Recommended version, null if the project is not on Ore or was
+     *         never checked
+     */
+    @Nullable
+    synchronized String getRecommended(String id) {
+        Entry entry = getEntries().get(id);
+        return entry != null ? entry.recommended : null;
+    }
+
+    /**
+     * Stores what was read of the specified project.
+     *
+     * @param id Project ID
+     * @param recommended Recommended version, null if the project is not on
+     *        Ore
+     * @param validator ETag or Last-Modified value of the response, if any
+     */
+    synchronized void put(String id, @Nullable String recommended, @Nullable String validator) {
+        Entry entry = new Entry();
+        entry.recommended = recommended;
+        entry.validator = validator;
+        entry.checked = System.currentTimeMillis();
+        getEntries().put(id, entry);
+        this.index.markDirty();
+    }
+
+    /**
+     * Marks the entry of the specified project fresh again, after the server
+     * answered that the project did not change.
+     *
+     * @param id Project ID
+     */
+    synchronized void touch(String id) {
+        Entry entry = getEntries().get(id);
+        if (entry != null) {
+            entry.checked = System.currentTimeMillis();
+            this.index.markDirty();
+        }
+    }
+
+    /**
+     * Forgets every project that is not one of the specified ones, such as
+     * those of uninstalled plugins.
+     *
+     * @param ids Project IDs to keep
+     */
+    synchronized void retain(Collection<String> ids) {
+        Set<String> keep = new HashSet<>(ids);
+        if (getEntries().keySet().removeIf(id -> !keep.contains(id)))
+            this.index.markDirty();
+    }
+
+    /**
+     * Writes the cache to its file if it changed since it was loaded.
+     *
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        this.index.save();
+    }
+
+    private Map<String, Entry> getEntries() {
+        return this.index.getEntries();
+    }
+
+    private static final class Entry {
+
+        @Nullable String recommended;
+        @Nullable String validator;
+        long checked;
+
+    }
+
+}
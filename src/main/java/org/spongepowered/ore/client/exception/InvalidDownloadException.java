@@ -0,0 +1,13 @@
+package org.spongepowered.ore.client.exception;
+
+/**
+ * Exception thrown when a downloaded file does not match the size or hash
+ * published by the server.
+ */
+public final class InvalidDownloadException extends OreException {
+
+    public InvalidDownloadException(String pluginId, String version, String reason) {
+        super("Download of Plugin \"" + pluginId + "\" v" + version + " is invalid: " + reason);
+    }
+
+}
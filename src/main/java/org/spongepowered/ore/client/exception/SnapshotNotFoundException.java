@@ -0,0 +1,15 @@
+package org.spongepowered.ore.client.exception;
+
+import javax.annotation.Nullable;
+
+/**
+ * Exception thrown when there is no snapshot of the mods directory to roll
+ * back to.
+ */
+public final class SnapshotNotFoundException extends OreException {
+
+    public SnapshotNotFoundException(@Nullable String name) {
+        super(name != null ? "Snapshot \"" + name + "\" not found." : "No snapshots of the mods directory found.");
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.spongepowered.ore.client.http;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the combined speed of every download to a ceiling. In adaptive mode
+ * the limit is halved whenever the server's ticks per second drop below a
+ * threshold and raised again step by step once it recovers.
+ */
+public final class BandwidthLimiter {
+
+    /**
+     * A limiter that never limits.
+     */
+    public static final BandwidthLimiter UNLIMITED = new BandwidthLimiter(0, 0, 0);
+
+    private static final double RAMP_UP_FACTOR = 1.25;
+
+    private final long maxRate;
+    private final long minRate;
+    private final double tpsThreshold;
+    private final AtomicLong transferred = new AtomicLong();
+    private final RateLimiter limiter;
+    private volatile boolean limited;
+    private long lastSample = System.nanoTime();
+
+    /**
+     * Constructs a new limiter.
+     *
+     * @param maxRate Ceiling in bytes per second, zero for none
+     * @param minRate Lowest rate in bytes per second adaptive mode backs off
+     *        to
+     * @param tpsThreshold Ticks per second below which adaptive mode backs
+     *        off, zero to disable adaptive mode
+     */
+    public BandwidthLimiter(long maxRate, long minRate, double tpsThreshold) {
+        this.maxRate = maxRate;
+        this.minRate = Math.max(1, minRate);
+        this.tpsThreshold = tpsThreshold;
+        this.limiter = RateLimiter.create(maxRate > 0 ? maxRate : Double.MAX_VALUE);
+        this.limited = maxRate > 0;
+    }
+
+    /**
+     * Returns true if this limiter reacts to the server's ticks per second.
+     *
+     * @return True if adaptive
+     */
+    public boolean isAdaptive() {
+        return this.tpsThreshold > 0;
+    }
+
+    /**
+     * Returns the current limit in bytes per second, or zero if downloads
+     * are currently not limited.
+     *
+     * @return Current limit
+     */
+    public long getRate() {
+        return this.limited ? (long) this.limiter.getRate() : 0;
+    }
+
+    /**
+     * Accounts for the specified amount of transferred bytes, blocking until
+     * they fit within the current limit.
+     *
+     * @param bytes Bytes transferred
+     */
+    public void acquire(int bytes) {
+        this.transferred.addAndGet(bytes);
+        if (this.limited && bytes > 0)
+            this.limiter.acquire(bytes);
+    }
+
+    /**
+     * Adjusts the limit to the server's current ticks per second. Meant to be
+     * called at a regular interval.
+     *
+     * @param tps Current ticks per second
+     */
+    public synchronized void adapt(double tps) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - this.lastSample) / (double) TimeUnit.SECONDS.toNanos(1));
+        double observed = this.transferred.getAndSet(0) / seconds;
+        this.lastSample = now;
+        if (!isAdaptive())
+            return;
+
+        if (tps < this.tpsThreshold) {
+            // Back off from whatever we are actually doing right now
+            double current = this.limited ? Math.min(this.limiter.getRate(), Math.max(observed, this.minRate))
+                : observed;
+            this.limiter.setRate(Math.max(this.minRate, current / 2));
+            this.limited = true;
+        } else if (this.limited) {
+            double next = this.limiter.getRate() * RAMP_UP_FACTOR;
+            if (this.maxRate > 0 && next >= this.maxRate)
+                this.limiter.setRate(this.maxRate);
+            else if (this.maxRate <= 0 && next >= observed * 2)
+                // No ceiling and we are well above what the downloads use
+                this.limited = false;
+            else
+                this.limiter.setRate(next);
+        }
+    }
+
+}
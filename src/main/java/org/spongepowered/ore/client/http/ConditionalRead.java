@@ -0,0 +1,81 @@
+package org.spongepowered.ore.client.http;
+
+import org.spongepowered.ore.client.OreClient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * Represents a read from the Ore server that is only answered with a body
+ * if the resource changed since a previous read, identified by the ETag or
+ * Last-Modified value that read returned.
+ */
+public final class ConditionalRead extends OreConnection {
+
+    @Nullable private final String validator;
+    private boolean notModified;
+
+    /**
+     * Constructs a new ConditionalRead ready to begin.
+     *
+     * @param client Client object
+     * @param route API route
+     * @param validator ETag or Last-Modified value of the previous read,
+     *        null to read unconditionally
+     * @param params Route parameters
+     */
+    public ConditionalRead(OreClient client, String route, @Nullable String validator, Object... params) {
+        super(client, route, params);
+        this.validator = validator;
+    }
+
+    /**
+     * Returns true if the server answered that the resource did not change
+     * since the previous read, in which case there is nothing to read.
+     *
+     * @return True if not modified
+     */
+    public boolean isNotModified() {
+        return this.notModified;
+    }
+
+    /**
+     * Returns the ETag of the response, or its Last-Modified value if the
+     * server sent no ETag, to make the next read conditional on.
+     *
+     * @return Response validator
+     */
+    public Optional<String> getValidator() {
+        if (this.http == null)
+            return Optional.empty();
+        String etag = this.http.getHeaderField("ETag");
+        return Optional.ofNullable(etag != null ? etag : this.http.getHeaderField("Last-Modified"));
+    }
+
+    @Override
+    protected void prepare(HttpURLConnection http) {
+        if (this.validator == null)
+            return;
+        // ETags are quoted, anything else is a date
+        if (this.validator.startsWith("\"") || this.validator.startsWith("W/"))
+            http.setRequestProperty("If-None-Match", this.validator);
+        else
+            http.setRequestProperty("If-Modified-Since", this.validator);
+    }
+
+    /**
+     * Opens a connection to the server.
+     *
+     * @throws IOException
+     */
+    @Override
+    public ConditionalRead open() throws IOException {
+        super.open();
+        this.notModified = this.http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+        return this;
+    }
+
+}
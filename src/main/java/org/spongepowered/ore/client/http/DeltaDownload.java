@@ -0,0 +1,116 @@
+package org.spongepowered.ore.client.http;
+
+import static org.spongepowered.ore.client.Routes.DELTA;
+
+import org.spongepowered.ore.client.OreClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Represents the download of a {@link DeltaPatch} between two versions of a
+ * plugin from the Ore server.
+ */
+public final class DeltaDownload extends OreConnection {
+
+    private final String pluginId, version, baseVersion;
+    private String name;
+
+    /**
+     * Constructs a new DeltaDownload ready to begin.
+     *
+     * @param client Client object
+     * @param pluginId ID of plugin to download
+     * @param version Version of plugin to patch to
+     * @param baseVersion Version of plugin to patch from
+     */
+    public DeltaDownload(OreClient client, String pluginId, String version, String baseVersion) {
+        super(client, DELTA, "?from=" + baseVersion, (Object) pluginId, version);
+        this.pluginId = pluginId;
+        this.version = version;
+        this.baseVersion = baseVersion;
+    }
+
+    /**
+     * Returns the ID of the plugin to patch.
+     *
+     * @return ID of plugin to patch
+     */
+    public String getPluginId() {
+        return this.pluginId;
+    }
+
+    /**
+     * Returns the version of the plugin to patch to.
+     *
+     * @return Version to patch to
+     */
+    public String getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Returns the version of the plugin to patch from.
+     *
+     * @return Version to patch from
+     */
+    public String getBaseVersion() {
+        return this.baseVersion;
+    }
+
+    /**
+     * Returns the file name of the patched plugin if it is available, empty
+     * otherwise.
+     *
+     * @return File name of patched plugin
+     */
+    public Optional<String> getFileName() {
+        return Optional.ofNullable(this.name).map(name -> name + ".jar");
+    }
+
+    /**
+     * Applies the downloaded patch to the specified base file.
+     *
+     * @param base File of the base version
+     * @param out File to write the patched plugin to
+     * @throws IOException
+     */
+    public void applyTo(Path base, Path out) throws IOException {
+        if (this.in == null)
+            throw new IllegalStateException("download not opened");
+        DeltaPatch.apply(base, this.in, out);
+    }
+
+    /**
+     * Makes the download wait for a free slot for the host it is served
+     * from before it starts.
+     *
+     * @param scheduler Scheduler to take host slots from
+     * @return This download
+     */
+    public DeltaDownload scheduledBy(DownloadScheduler scheduler) {
+        setScheduler(scheduler);
+        return this;
+    }
+
+    @Override
+    protected boolean isHedged() {
+        // Files are large and already resumable
+        return false;
+    }
+
+    /**
+     * Opens a connection to the server.
+     *
+     * @throws IOException
+     */
+    @Override
+    public DeltaDownload open() throws IOException {
+        super.open();
+        // Get name for patched file
+        this.name = getAttachmentName().orElse(this.pluginId + '-' + this.version);
+        return this;
+    }
+
+}
@@ -0,0 +1,202 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.readAllBytes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates and applies binary patches between two versions of a plugin file.
+ * A patch is a list of instructions that either copy a range of the base
+ * file or insert literal bytes. Since unchanged entries of a jar are stored
+ * byte for byte the same, a small fix only needs the changed entries and the
+ * central directory to be sent.
+ */
+public final class DeltaPatch {
+
+    private static final int MAGIC = 0x4F524544; // "ORED"
+    private static final int BLOCK_SIZE = 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte OP_END = 0;
+    private static final byte OP_COPY = 1;
+    private static final byte OP_INSERT = 2;
+
+    private DeltaPatch() {}
+
+    /**
+     * Writes a patch that turns the base file into the target file.
+     *
+     * @param base Base file
+     * @param target Target file
+     * @param out Stream to write the patch to
+     * @throws IOException
+     */
+    public static void create(Path base, Path target, OutputStream out) throws IOException {
+        byte[] from = readAllBytes(base);
+        byte[] to = readAllBytes(target);
+        DataOutputStream patch = new DataOutputStream(out);
+        patch.writeInt(MAGIC);
+        patch.writeLong(from.length);
+        patch.writeLong(to.length);
+
+        // Index every block of the base by its weak checksum
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= from.length; offset += BLOCK_SIZE)
+            blocks.putIfAbsent(new RollingChecksum(from, offset).get(), offset);
+
+        int literalStart = 0;
+        int position = 0;
+        RollingChecksum checksum = position + BLOCK_SIZE <= to.length ? new RollingChecksum(to, position) : null;
+        while (checksum != null) {
+            Integer match = blocks.get(checksum.get());
+            if (match != null && regionMatches(from, match, to, position, BLOCK_SIZE)) {
+                // Grow the match in both directions as far as it goes
+                int start = match;
+                while (start > 0 && position > literalStart && from[start - 1] == to[position - 1]) {
+                    start--;
+                    position--;
+                }
+                int length = 0;
+                while (start + length < from.length && position + length < to.length
+                    && from[start + length] == to[position + length])
+                    length++;
+
+                writeInsert(patch, to, literalStart, position - literalStart);
+                patch.writeByte(OP_COPY);
+                patch.writeLong(start);
+                patch.writeInt(length);
+                position += length;
+                literalStart = position;
+                checksum = position + BLOCK_SIZE <= to.length ? new RollingChecksum(to, position) : null;
+            } else if (position + BLOCK_SIZE < to.length) {
+                checksum.roll(to[position], to[position + BLOCK_SIZE]);
+                position++;
+            } else
+                checksum = null;
+        }
+
+        writeInsert(patch, to, literalStart, to.length - literalStart);
+        patch.writeByte(OP_END);
+        patch.flush();
+    }
+
+    /**
+     * Applies a patch to the base file, writing the result to the output
+     * file.
+     *
+     * @param base Base file the patch was created against
+     * @param patch Stream to read the patch from
+     * @param out File to write the result to
+     * @throws IOException if the patch is malformed or was created against
+     *         a different base
+     */
+    public static void apply(Path base, InputStream patch, Path out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(patch));
+        if (in.readInt() != MAGIC)
+            throw new IOException("not a delta patch");
+        long baseLength = in.readLong();
+        long targetLength = in.readLong();
+
+        try (FileChannel source = FileChannel.open(base);
+             FileChannel target = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (source.size() != baseLength)
+                throw new IOException("patch was created against a different file");
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                byte op = in.readByte();
+                if (op == OP_END)
+                    break;
+                if (op == OP_COPY) {
+                    long offset = in.readLong();
+                    long length = in.readInt();
+                    if (offset < 0 || length < 0 || offset + length > baseLength)
+                        throw new IOException("patch copies outside of the base file");
+                    while (length > 0) {
+                        long transferred = source.transferTo(offset, length, target);
+                        if (transferred <= 0)
+                            throw new EOFException("base file ended early");
+                        offset += transferred;
+                        length -= transferred;
+                    }
+                } else if (op == OP_INSERT) {
+                    int length = in.readInt();
+                    while (length > 0) {
+                        int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                        if (read == -1)
+                            throw new EOFException("patch ended early");
+                        ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, read);
+                        while (wrapped.hasRemaining())
+                            target.write(wrapped);
+                        length -= read;
+                    }
+                } else
+                    throw new IOException("unknown patch instruction " + op);
+            }
+
+            if (target.size() != targetLength)
+                throw new IOException("patch produced " + target.size() + " bytes instead of " + targetLength);
+        }
+    }
+
+    private static void writeInsert(DataOutputStream patch, byte[] bytes, int offset, int length)
+        throws IOException {
+        if (length == 0)
+            return;
+        patch.writeByte(OP_INSERT);
+        patch.writeInt(length);
+        patch.write(bytes, offset, length);
+    }
+
+    private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        if (aOffset + length > a.length || bOffset + length > b.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] != b[bOffset + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The weak checksum rsync uses to find matching blocks, which can be
+     * moved along by one byte at a time.
+     */
+    private static final class RollingChecksum {
+
+        private int a;
+        private int b;
+
+        RollingChecksum(byte[] bytes, int offset) {
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                int value = bytes[offset + i] & 0xFF;
+                this.a += value;
+                this.b += (BLOCK_SIZE - i) * value;
+            }
+        }
+
+        void roll(byte out, byte in) {
+            int removed = out & 0xFF;
+            this.a += (in & 0xFF) - removed;
+            this.b += this.a - BLOCK_SIZE * removed;
+        }
+
+        int get() {
+            return (this.a & 0xFFFF) | (this.b << 16);
+        }
+
+    }
+
+}
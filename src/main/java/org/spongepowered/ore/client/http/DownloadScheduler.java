@@ -0,0 +1,180 @@
+package org.spongepowered.ore.client.http;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Coordinates every download of a client. Identical requests made while one
+ * is in flight wait for and share its result instead of downloading the same
+ * artifact again, and the amount of downloads running at once is capped both
+ * overall and per host. The host is the one of the repository a download's
+ * connection is actually opened against, which is only known once a
+ * repository answers.
+ */
+public final class DownloadScheduler {
+
+    private final int maxDownloads;
+    private final int maxDownloadsPerHost;
+    private final Semaphore permits;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param maxDownloads Maximum amount of downloads running at once
+     * @param maxDownloadsPerHost Maximum amount of downloads running at once
+     *        against a single host
+     */
+    public DownloadScheduler(int maxDownloads, int maxDownloadsPerHost) {
+        this.maxDownloads = Math.max(1, maxDownloads);
+        this.maxDownloadsPerHost = Math.max(1, maxDownloadsPerHost);
+        this.permits = new Semaphore(this.maxDownloads, true);
+    }
+
+    /**
+     * Returns the maximum amount of downloads running at once.
+     *
+     * @return Maximum downloads
+     */
+    public int getMaxDownloads() {
+        return this.maxDownloads;
+    }
+
+    /**
+     * Returns the maximum amount of downloads running at once against a
+     * single host.
+     *
+     * @return Maximum downloads per host
+     */
+    public int getMaxDownloadsPerHost() {
+        return this.maxDownloadsPerHost;
+    }
+
+    /**
+     * Returns the amount of distinct downloads currently in flight.
+     *
+     * @return Downloads in flight
+     */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    /**
+     * Runs the specified {@link Download} on the calling thread once a slot
+     * is free. If a download with the same key is already in flight, it
+     * waits for that one instead and returns its result, or rethrows its
+     * failure.
+     *
+     * @param key Key identifying the artifact, such as "id@version"
+     * @param download Download to run if none is in flight
+     * @return Path of the downloaded artifact
+     * @throws IOException
+     */
+    public Path submit(String key, Download download) throws IOException {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = this.inFlight.putIfAbsent(key, future);
+        if (existing != null)
+            return await(existing);
+
+        try {
+            acquire(this.permits);
+            try {
+                future.complete(download.run());
+            } finally {
+                this.permits.release();
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, future);
+        }
+        return future.join();
+    }
+
+    /**
+     * Waits for a free slot for the specified host. Connections take one
+     * before each request to a repository and release it when they fail or
+     * are closed.
+     *
+     * @param host Host about to be downloaded from
+     * @throws IOException if interrupted while waiting
+     */
+    void acquireHost(String host) throws IOException {
+        acquire(getHostPermits(host));
+    }
+
+    /**
+     * Takes a slot for the specified host if one is free, without waiting.
+     * Segmented transfers take one for each connection they open besides
+     * the download's own.
+     *
+     * @param host Host about to be downloaded from
+     * @return True if a slot was taken
+     */
+    boolean tryAcquireHost(String host) {
+        return getHostPermits(host).tryAcquire();
+    }
+
+    /**
+     * Releases a slot taken for the specified host.
+     *
+     * @param host Host that was downloaded from
+     */
+    void releaseHost(String host) {
+        getHostPermits(host).release();
+    }
+
+    private Semaphore getHostPermits(String host) {
+        return this.hostPermits.computeIfAbsent(host, h -> new Semaphore(this.maxDownloadsPerHost, true));
+    }
+
+    private static void acquire(Semaphore semaphore) throws IOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("download interrupted", e);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("download interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * A download that can be shared by every caller requesting the same
+     * artifact.
+     */
+    @FunctionalInterface
+    public interface Download {
+
+        /**
+         * Downloads the artifact.
+         *
+         * @return Path of the downloaded artifact
+         * @throws IOException
+         */
+        Path run() throws IOException;
+
+    }
+
+}
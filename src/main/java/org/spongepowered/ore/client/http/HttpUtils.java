@@ -1,6 +1,9 @@
 package org.spongepowered.ore.client.http;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.net.URLEncoder;
 
 import javax.annotation.Nullable;
@@ -10,8 +13,35 @@ import javax.annotation.Nullable;
  */
 public final class HttpUtils {
 
+    /**
+     * Milliseconds to wait for a server to accept a connection.
+     */
+    public static final int CONNECT_TIMEOUT = 10000;
+
+    /**
+     * Milliseconds to wait for a server to answer or send more of a response.
+     */
+    public static final int READ_TIMEOUT = 30000;
+
     private HttpUtils() {}
 
+    /**
+     * Opens a connection to the specified {@link URL} that fails with a
+     * {@link java.net.SocketTimeoutException} if the server does not accept
+     * it or stops sending data for too long, rather than waiting for as long
+     * as the operating system does.
+     *
+     * @param url URL to connect to
+     * @return Unconnected connection
+     * @throws IOException
+     */
+    public static HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        return connection;
+    }
+
     /**
      * Encodes and rebuilds each parameter in the specified URL query string.
      *
@@ -4,27 +4,40 @@ import com.google.gson.Gson;
 import org.spongepowered.ore.client.OreClient;
 import org.spongepowered.ore.client.exception.OreConnectException;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 /**
  * Represents a connection to the Ore server.
  */
-public class OreConnection {
+public class OreConnection implements Closeable {
 
     private final OreClient client;
     private final Gson gson = new Gson();
-    private final URL routeUrl;
+    private final String route, queryString;
+    private final Object[] params;
+    private URL routeUrl;
     protected InputStream in;
     protected HttpURLConnection http;
+    @Nullable private DownloadScheduler scheduler;
+    @Nullable private String heldHost;
 
     protected OreConnection(OreClient client, String route, String queryString, Object... params) {
         this.client = client;
+        this.route = route;
+        this.queryString = queryString;
+        this.params = params;
         this.routeUrl = client.getRouteUrl(route, queryString, params);
     }
 
@@ -33,7 +46,8 @@ public class OreConnection {
     }
 
     /**
-     * Returns the full {@link URL} for the connection.
+     * Returns the full {@link URL} for the connection. Once opened, this is
+     * the URL of the repository that answered.
      *
      * @return URL for connection
      */
@@ -52,18 +66,144 @@ public class OreConnection {
     }
 
     /**
-     * Opens a connection to the server.
+     * Returns the file name without extension the server attached the
+     * response as, if any.
+     *
+     * @return Attachment name
+     */
+    protected Optional<String> getAttachmentName() {
+        String contentDisposition = this.http != null ? this.http.getHeaderField("Content-Disposition") : null;
+        if (contentDisposition == null)
+            return Optional.empty();
+        String section = contentDisposition.split(";")[1];
+        return Optional.of(section.substring(section.indexOf('"') + 1, section.lastIndexOf('.')));
+    }
+
+    /**
+     * Returns true if a slow request for this connection may be hedged with
+     * a second one. Only true for small reads that are safe to repeat.
+     *
+     * @return True if hedged
+     */
+    protected boolean isHedged() {
+        return true;
+    }
+
+    /**
+     * Makes the connection wait for a free slot for the host of the
+     * repository it is opened against, and hold it until it is closed.
+     *
+     * @param scheduler Scheduler to take host slots from
+     */
+    protected void setScheduler(DownloadScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Prepares a request before it is sent, such as by setting headers.
+     *
+     * @param http Request to prepare
+     */
+    protected void prepare(HttpURLConnection http) {
+    }
+
+    /**
+     * Opens a connection to the server. Repositories are tried fastest
+     * first, moving on to the next one if a repository cannot be reached,
+     * does not answer in time or fails with a server error. A slow read is
+     * hedged with a second request to the next repository, or the same one
+     * if there is no other.
      *
      * @throws IOException
      */
     public OreConnection open() throws IOException {
-        // Establish connection
+        RepositoryPool repositories = this.client.getRepositories();
+        List<RepositoryPool.Repository> ranked = repositories.getRanked();
+        Attempt attempt;
+        if (isHedged()) {
+            List<RepositoryPool.Repository> alternate = new ArrayList<>(ranked);
+            Collections.rotate(alternate, -1);
+            attempt = repositories.getHedger().call(() -> connect(repositories, ranked),
+                () -> connect(repositories, alternate), lost -> {
+                    lost.http.disconnect();
+                    releaseHost(lost.url);
+                });
+        } else
+            attempt = connect(repositories, ranked);
+
+        this.routeUrl = attempt.url;
+        this.http = attempt.http;
+        if (this.scheduler != null)
+            this.heldHost = attempt.url.getHost();
         try {
-            this.http = (HttpURLConnection) this.routeUrl.openConnection();
             this.in = this.http.getInputStream();
-            return this;
-        } catch (ConnectException e) {
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        return this;
+    }
+
+    private Attempt connect(RepositoryPool repositories, List<RepositoryPool.Repository> order)
+        throws IOException {
+        IOException failure = null;
+        for (RepositoryPool.Repository repository : order) {
+            URL url = this.client.getRouteUrl(repository.getUrl(), this.route, this.queryString, this.params);
+            if (this.scheduler != null)
+                this.scheduler.acquireHost(url.getHost());
+            long start = System.nanoTime();
+            HttpURLConnection http = null;
+            try {
+                // Establish connection
+                // Timeouts count as failures too, so that a repository that
+                // stopped answering is moved past
+                http = HttpUtils.openConnection(url);
+                prepare(http);
+                if (http.getResponseCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+                    throw new IOException("server error " + http.getResponseCode() + " from " + repository);
+            } catch (IOException e) {
+                repositories.recordFailure(repository);
+                if (http != null)
+                    http.disconnect();
+                releaseHost(url);
+                if (failure == null || e instanceof ConnectException)
+                    failure = e;
+                continue;
+            }
+
+            // Any other response is the answer, including client errors
+            repositories.recordSuccess(repository, System.nanoTime() - start);
+            return new Attempt(url, http);
+        }
+
+        if (failure instanceof ConnectException)
             throw new OreConnectException(this.client.getRootUrl().toString());
+        throw failure;
+    }
+
+    private void releaseHost(URL url) {
+        if (this.scheduler != null)
+            this.scheduler.releaseHost(url.getHost());
+    }
+
+    /**
+     * Closes the connection's {@link InputStream} and releases the underlying
+     * {@link HttpURLConnection}.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.in != null)
+                this.in.close();
+        } finally {
+            if (this.http != null)
+                this.http.disconnect();
+            if (this.heldHost != null) {
+                this.scheduler.releaseHost(this.heldHost);
+                this.heldHost = null;
+            }
         }
     }
 
@@ -104,4 +244,16 @@ public class OreConnection {
         return new OreConnection(client, route, params).open();
     }
 
+    private static final class Attempt {
+
+        final URL url;
+        final HttpURLConnection http;
+
+        Attempt(URL url, HttpURLConnection http) {
+            this.url = url;
+            this.http = http;
+        }
+
+    }
+
 }
@@ -0,0 +1,433 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.size;
+
+import com.google.common.base.Objects;
+import com.google.common.io.BaseEncoding;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.spongepowered.ore.client.AtomicFiles;
+import org.spongepowered.ore.client.exception.InvalidDownloadException;
+import org.spongepowered.ore.client.model.project.Version;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A download in progress that is persisted next to a sidecar state file so
+ * that it can be resumed with ranged requests after a failure or restart.
+ */
+public final class PartialDownload {
+
+    private static final String EXTENSION = ".part";
+    private static final String STATE_EXTENSION = ".part.json";
+    private static final String DIGEST_ALGORITHM = "MD5";
+    private static final int BUFFER_SIZE = 8192;
+    private static final Gson gson = new Gson();
+
+    private final Path file;
+    private final Path stateFile;
+    private final MessageDigest digest;
+    private State state;
+    private long digested;
+
+    private PartialDownload(Path file, Path stateFile, @Nullable State state) {
+        this.file = file;
+        this.stateFile = stateFile;
+        this.state = state;
+        try {
+            this.digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the {@link Path} the download is written to until it is
+     * promoted.
+     *
+     * @return Partial file
+     */
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the total length of the download in bytes.
+     *
+     * @return Length of download
+     */
+    public long getLength() {
+        return this.state.length;
+    }
+
+    /**
+     * Returns the validator (ETag or Last-Modified value) the download was
+     * started with, if any.
+     *
+     * @return Validator of download
+     */
+    @Nullable
+    public String getValidator() {
+        return this.state.validator;
+    }
+
+    /**
+     * Returns the {@link Segment}s the download is split into.
+     *
+     * @return Download segments
+     */
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(this.state.segments);
+    }
+
+    /**
+     * Returns true if the persisted state describes a download of the
+     * specified length and validator, meaning the remaining segments can be
+     * resumed.
+     *
+     * @param length Length of download
+     * @param validator Validator of download
+     * @return True if resumable
+     * @throws IOException
+     */
+    public boolean matches(long length, @Nullable String validator) throws IOException {
+        return isResumable() && this.state.length == length && Objects.equal(this.state.validator, validator);
+    }
+
+    /**
+     * Returns true if an earlier attempt left progress behind that can be
+     * resumed with ranged requests, provided the file did not change since.
+     *
+     * @return True if resumable
+     * @throws IOException
+     */
+    public boolean isResumable() throws IOException {
+        return this.state != null && exists(this.file) && size(this.file) == this.state.length;
+    }
+
+    /**
+     * Discards any progress and starts a new download of the specified length
+     * split into the specified amount of segments.
+     *
+     * @param length Length of download
+     * @param validator Validator of download
+     * @param segments Amount of segments
+     * @throws IOException
+     */
+    public void reset(long length, @Nullable String validator, int segments) throws IOException {
+        deleteIfExists(this.file);
+        List<Segment> list = new ArrayList<>();
+        long segmentLength = (length + segments - 1) / Math.max(1, segments);
+        for (long start = 0; start < length; start += segmentLength)
+            list.add(new Segment(start, Math.min(start + segmentLength, length)));
+        this.state = new State(length, validator, list);
+        resetDigest();
+        // Nothing written yet that would have to reach the disk first
+        writeState();
+    }
+
+    /**
+     * Discards any progress and copies a download of unknown length from the
+     * specified {@link InputStream}. Such a download cannot be resumed.
+     *
+     * @param in Stream to copy
+     * @param limiter Limiter to account the copied bytes with
+     * @throws IOException
+     */
+    public void copyFrom(InputStream in, BandwidthLimiter limiter) throws IOException {
+        deleteIfExists(this.stateFile);
+        this.state = null;
+        resetDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(this.file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                limiter.acquire(read);
+                out.write(buffer, 0, read);
+                update(buffer, 0, read, this.digested);
+            }
+        }
+    }
+
+    /**
+     * Feeds bytes that were just written at the specified offset into the
+     * running hash of the download. Only bytes that continue the hashed
+     * prefix of the file are used, anything else is read back when the hash
+     * is completed.
+     *
+     * @param buffer Bytes written
+     * @param offset Offset in buffer
+     * @param length Amount of bytes
+     * @param position Offset in file the bytes were written to
+     */
+    synchronized void update(byte[] buffer, int offset, int length, long position) {
+        if (position != this.digested)
+            return;
+        this.digest.update(buffer, offset, length);
+        this.digested += length;
+    }
+
+    /**
+     * Reads the file up to the specified offset into the running hash so
+     * that a resumed segment can continue hashing as it streams.
+     *
+     * @param channel Channel of the partial file
+     * @param position Offset to hash up to
+     * @throws IOException
+     */
+    synchronized void catchUp(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (this.digested < position) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, position - this.digested));
+            int read = channel.read(buffer, this.digested);
+            if (read == -1)
+                throw new IOException("partial file is shorter than expected");
+            buffer.flip();
+            this.digest.update(buffer);
+            this.digested += read;
+        }
+    }
+
+    private synchronized void resetDigest() {
+        this.digest.reset();
+        this.digested = 0;
+    }
+
+    private synchronized String finishDigest() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.file)) {
+            catchUp(channel, channel.size());
+        }
+        String hex = BaseEncoding.base16().lowerCase().encode(this.digest.digest());
+        resetDigest();
+        return hex;
+    }
+
+    /**
+     * Persists the current progress to the sidecar state file, after forcing
+     * the bytes written so far to disk so that the state never claims bytes
+     * a crash lost.
+     *
+     * @param channel Channel the partial file was written through
+     * @throws IOException
+     */
+    public synchronized void checkpoint(FileChannel channel) throws IOException {
+        channel.force(false);
+        writeState();
+    }
+
+    private synchronized void writeState() throws IOException {
+        AtomicFiles.writeAtomically(this.stateFile, temp -> {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(this.state, out);
+            }
+        });
+    }
+
+    /**
+     * Checks the finished download against the size and hash published for
+     * the specified {@link Version}. The hash is mostly computed while the
+     * download streams in, so this rarely needs to read the file again. A
+     * download that does not match is moved to the specified quarantine
+     * directory so that the next attempt starts over.
+     *
+     * @param pluginId Plugin ID
+     * @param version Version that was downloaded
+     * @param quarantineDir Directory to move invalid downloads to
+     * @throws IOException
+     * @throws InvalidDownloadException if the download does not match
+     */
+    public void verify(String pluginId, Version version, Path quarantineDir)
+        throws IOException, InvalidDownloadException {
+        String reason = null;
+        long size = size(this.file);
+        if (version.getFileSize() > 0 && size != version.getFileSize())
+            reason = "expected " + version.getFileSize() + " bytes but got " + size;
+        else if (version.getMd5() != null) {
+            String md5 = finishDigest();
+            if (!md5.equalsIgnoreCase(version.getMd5()))
+                reason = "expected MD5 " + version.getMd5() + " but got " + md5;
+        }
+
+        if (reason != null) {
+            createDirectories(quarantineDir);
+            move(this.file, quarantineDir.resolve(this.file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            deleteIfExists(this.stateFile);
+            throw new InvalidDownloadException(pluginId, version.getName(), reason);
+        }
+    }
+
+    /**
+     * Moves the finished download to the specified target {@link Path}, or
+     * next to it if the name is taken, and removes its state file. The
+     * download appears at its new name all at once.
+     *
+     * @param target Preferred target path
+     * @return Path the download was moved to
+     * @throws IOException
+     */
+    public Path promote(Path target) throws IOException {
+        Path placed = AtomicFiles.moveToAvailable(this.file, target);
+        deleteIfExists(this.stateFile);
+        return placed;
+    }
+
+    /**
+     * Deletes the partial file and its state file.
+     *
+     * @throws IOException
+     */
+    public void delete() throws IOException {
+        deleteIfExists(this.file);
+        deleteIfExists(this.stateFile);
+    }
+
+    /**
+     * Returns the partial download of the specified plugin version in the
+     * specified directory, restoring its state if a previous attempt left
+     * one behind.
+     *
+     * @param dir Directory to keep the partial download in
+     * @param pluginId Plugin ID
+     * @param version Plugin version
+     * @return Partial download
+     * @throws IOException
+     */
+    public static PartialDownload open(Path dir, String pluginId, String version) throws IOException {
+        String name = (pluginId + '-' + version).replaceAll("[^A-Za-z0-9._-]", "_");
+        Path file = dir.resolve(name + EXTENSION);
+        Path stateFile = dir.resolve(name + STATE_EXTENSION);
+        State state = null;
+        if (exists(stateFile)) {
+            try (Reader in = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                state = gson.fromJson(in, State.class);
+            } catch (JsonParseException ignored) {
+                // Corrupt state, start over
+            }
+        }
+        return new PartialDownload(file, stateFile, state);
+    }
+
+    /**
+     * Returns true if the specified {@link Path} belongs to a partial
+     * download.
+     *
+     * @param path Path to check
+     * @return True if partial download
+     */
+    public static boolean isPartial(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(EXTENSION) || name.endsWith(STATE_EXTENSION);
+    }
+
+    /**
+     * A contiguous byte range of a download and how much of it has been
+     * written.
+     */
+    public static final class Segment {
+
+        private long start;
+        private long end;
+        private volatile long written;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the offset of the first byte of the segment.
+         *
+         * @return Start offset
+         */
+        public long getStart() {
+            return this.start;
+        }
+
+        /**
+         * Returns the offset after the last byte of the segment.
+         *
+         * @return End offset, exclusive
+         */
+        public long getEnd() {
+            return this.end;
+        }
+
+        /**
+         * Returns the amount of bytes written to the segment.
+         *
+         * @return Bytes written
+         */
+        public long getWritten() {
+            return this.written;
+        }
+
+        /**
+         * Returns the offset of the next byte to write.
+         *
+         * @return Next offset
+         */
+        public long getPosition() {
+            return this.start + this.written;
+        }
+
+        /**
+         * Returns the amount of bytes left to write.
+         *
+         * @return Bytes remaining
+         */
+        public long getRemaining() {
+            return this.end - this.start - this.written;
+        }
+
+        /**
+         * Returns true if every byte of the segment has been written.
+         *
+         * @return True if complete
+         */
+        public boolean isComplete() {
+            return getRemaining() <= 0;
+        }
+
+        void advance(long count) {
+            this.written += count;
+        }
+
+    }
+
+    private static final class State {
+
+        private long length;
+        private String validator;
+        private List<Segment> segments;
+
+        State(long length, @Nullable String validator, List<Segment> segments) {
+            this.length = length;
+            this.validator = validator;
+            this.segments = segments;
+        }
+
+    }
+
+}
@@ -5,8 +5,12 @@ import static org.spongepowered.ore.client.Routes.DOWNLOAD;
 import org.spongepowered.ore.client.OreClient;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 /**
  * Represents a plugin download from the Ore server.
  */
@@ -14,6 +18,9 @@ public final class PluginDownload extends OreConnection {
 
     private final String pluginId, version;
     private String name;
+    @Nullable private PartialDownload.Segment resumed;
+    @Nullable private String resumedValidator;
+    private long streamOffset;
 
     /**
      * Constructs a new PluginDownload ready to begin.
@@ -66,6 +73,171 @@ public final class PluginDownload extends OreConnection {
         return getName().map(name -> name + ".jar");
     }
 
+    /**
+     * Returns the length of the download in bytes as reported by the server,
+     * or -1 if unknown.
+     *
+     * @return Length of download
+     */
+    public long getContentLength() {
+        if (this.http == null)
+            return -1;
+        if (!isPartialContent())
+            return this.http.getContentLengthLong();
+        // Content-Range: bytes <first>-<last>/<length>
+        String range = this.http.getHeaderField("Content-Range");
+        if (range == null || range.endsWith("/*"))
+            return -1;
+        try {
+            return Long.parseLong(range.substring(range.lastIndexOf('/') + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the offset in the file the open stream starts at, which is
+     * only past the start if a resumed range was answered.
+     *
+     * @return Offset of stream
+     */
+    public long getStreamOffset() {
+        return this.streamOffset;
+    }
+
+    /**
+     * Returns true if the server advertised support for byte range requests
+     * on this download.
+     *
+     * @return True if ranges are accepted
+     */
+    public boolean acceptsRanges() {
+        return this.http != null && (isPartialContent()
+            || "bytes".equalsIgnoreCase(this.http.getHeaderField("Accept-Ranges")));
+    }
+
+    /**
+     * Returns the {@link URL} the download was served from after any
+     * redirects were followed.
+     *
+     * @return Resolved URL
+     */
+    public URL getResolvedUrl() {
+        return this.http != null ? this.http.getURL() : getUrl();
+    }
+
+    /**
+     * Returns the ETag of the download, or its Last-Modified value if the
+     * server did not send one, empty otherwise.
+     *
+     * @return Validator of download
+     */
+    public Optional<String> getValidator() {
+        if (this.http == null)
+            return Optional.empty();
+        String etag = this.http.getHeaderField("ETag");
+        return Optional.ofNullable(etag != null ? etag : this.http.getHeaderField("Last-Modified"));
+    }
+
+    /**
+     * Transfers the download into the specified {@link PartialDownload}. If
+     * the partial download was left behind by an earlier attempt at the same
+     * file, only its missing segments are requested. Large downloads are
+     * split into concurrent ranged requests if the server supports it,
+     * otherwise the download is read as a single stream.
+     *
+     * @param partial Partial download to fill
+     * @param settings Transfer settings
+     * @throws IOException
+     */
+    public void transferTo(PartialDownload partial, TransferSettings settings) throws IOException {
+        if (this.in == null)
+            throw new IllegalStateException("download not opened");
+        long length = getContentLength();
+        if (length < 0 && this.streamOffset > 0) {
+            partial.delete();
+            throw new IOException("server answered a resumed download without its length");
+        }
+        if (length < 0) {
+            // Unknown length, nothing to resume against
+            partial.copyFrom(this.in, settings.getLimiter());
+            return;
+        }
+
+        String validator = getValidator().orElse(null);
+        boolean ranges = acceptsRanges();
+        if (!ranges || !partial.matches(length, validator)) {
+            int segments = ranges && length >= settings.getSegmentedThreshold() ? settings.getSegments() : 1;
+            partial.reset(length, validator, segments);
+        }
+
+        if (!new SegmentedTransfer(this, partial, settings).transferTo()) {
+            // Server ignored our ranges, start over as a single stream, which
+            // the open one only is if it was not answered as a resumed range
+            partial.reset(length, validator, 1);
+            if (isPartialContent() || !new SegmentedTransfer(this, partial, settings).transferTo()) {
+                throw new IOException("server ignored the ranges requested for " + this.pluginId + " v"
+                    + this.version + ", the download starts over next time");
+            }
+        }
+    }
+
+    /**
+     * Asks for only the first missing segment of the specified partial
+     * download when opened, if an earlier attempt left one behind. The
+     * request is conditional on the file being unchanged, otherwise the
+     * server answers with the whole file as usual.
+     *
+     * @param partial Partial download to resume
+     * @return This download
+     * @throws IOException
+     */
+    public PluginDownload resuming(PartialDownload partial) throws IOException {
+        if (partial.isResumable()) {
+            this.resumed = partial.getSegments().stream()
+                .filter(segment -> !segment.isComplete())
+                .findFirst()
+                .orElse(null);
+            this.resumedValidator = partial.getValidator();
+        }
+        return this;
+    }
+
+    @Override
+    protected void prepare(HttpURLConnection http) {
+        if (this.resumed == null)
+            return;
+        http.setRequestProperty("Range", "bytes=" + this.resumed.getPosition() + "-" + (this.resumed.getEnd() - 1));
+        if (this.resumedValidator != null)
+            http.setRequestProperty("If-Range", this.resumedValidator);
+    }
+
+    private boolean isPartialContent() {
+        try {
+            return this.http.getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Makes the download wait for a free slot for the host it is served
+     * from before it starts.
+     *
+     * @param scheduler Scheduler to take host slots from
+     * @return This download
+     */
+    public PluginDownload scheduledBy(DownloadScheduler scheduler) {
+        setScheduler(scheduler);
+        return this;
+    }
+
+    @Override
+    protected boolean isHedged() {
+        // Files are large and already resumable
+        return false;
+    }
+
     /**
      * Opens a connection to the server.
      *
@@ -74,13 +246,10 @@ public final class PluginDownload extends OreConnection {
     @Override
     public PluginDownload open() throws IOException {
         super.open();
+        if (this.resumed != null && isPartialContent())
+            this.streamOffset = this.resumed.getPosition();
         // Get name for file
-        String contentDisposition = this.http.getHeaderField("Content-Disposition");
-        this.name = this.pluginId;
-        if (contentDisposition != null) {
-            String section = contentDisposition.split(";")[1];
-            this.name = section.substring(section.indexOf('"') + 1, section.lastIndexOf('.'));
-        }
+        this.name = getAttachmentName().orElse(this.pluginId);
         return this;
     }
 
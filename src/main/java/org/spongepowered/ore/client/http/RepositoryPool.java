@@ -0,0 +1,265 @@
+package org.spongepowered.ore.client.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A set of equivalent Ore repositories, such as the main site and its
+ * mirrors. Every request made against a repository feeds its rolling
+ * latency and error rate, and requests go to the fastest repository that is
+ * not cooling down after failures, falling back to the others in order.
+ */
+public final class RepositoryPool {
+
+    private static final double SMOOTHING = 0.3;
+    private static final int PROBE_TIMEOUT = 5000;
+
+    private final List<Repository> repositories;
+    private final long cooldown;
+    private final RequestHedger hedger;
+
+    /**
+     * Constructs a new pool.
+     *
+     * @param urls Root URLs of the repositories, in order of preference
+     * @param cooldown Milliseconds a repository is skipped after it first
+     *        fails, doubled for every further failure in a row
+     * @param hedger Hedger for reads from the repositories
+     */
+    public RepositoryPool(List<URL> urls, long cooldown, RequestHedger hedger) {
+        checkArgument(!urls.isEmpty(), "no repositories");
+        ImmutableList.Builder<Repository> repositories = ImmutableList.builder();
+        for (URL url : urls)
+            repositories.add(new Repository(url));
+        this.repositories = repositories.build();
+        this.cooldown = Math.max(0, cooldown);
+        this.hedger = hedger;
+    }
+
+    /**
+     * Returns a pool of the single specified repository.
+     *
+     * @param url Root URL of repository
+     * @return New pool
+     */
+    public static RepositoryPool of(URL url) {
+        return new RepositoryPool(ImmutableList.of(url), 0, RequestHedger.DISABLED);
+    }
+
+    /**
+     * Returns every repository of this pool in order of preference.
+     *
+     * @return Repositories
+     */
+    public List<Repository> getRepositories() {
+        return this.repositories;
+    }
+
+    /**
+     * Returns the {@link RequestHedger} reads from the repositories are made
+     * through.
+     *
+     * @return Request hedger
+     */
+    public RequestHedger getHedger() {
+        return this.hedger;
+    }
+
+    /**
+     * Returns the repository requests are currently sent to first.
+     *
+     * @return Preferred repository
+     */
+    public Repository getPreferred() {
+        return getRanked().get(0);
+    }
+
+    /**
+     * Returns every repository in the order requests should try them. Those
+     * that are available come first, fastest first, followed by those
+     * cooling down, soonest available first.
+     *
+     * @return Ranked repositories
+     */
+    public List<Repository> getRanked() {
+        // Statistics change while sorting, so rank a snapshot of them
+        long now = System.nanoTime();
+        int size = this.repositories.size();
+        long[] waits = new long[size];
+        double[] scores = new double[size];
+        List<Integer> indices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Repository repository = this.repositories.get(i);
+            waits[i] = Math.max(0, repository.retryAt - now);
+            scores[i] = repository.getScore();
+            indices.add(i);
+        }
+        indices.sort(Comparator.<Integer>comparingLong(i -> waits[i])
+            .thenComparingDouble(i -> scores[i])
+            .thenComparingInt(i -> i));
+        return indices.stream().map(this.repositories::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Sends a request to every repository and records how long each takes
+     * to answer.
+     *
+     * @param route Route to request, relative to the root URL
+     */
+    public void probe(String route) {
+        for (Repository repository : this.repositories) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) new URL(repository.url + route).openConnection();
+                connection.setRequestMethod("HEAD");
+                connection.setConnectTimeout(PROBE_TIMEOUT);
+                connection.setReadTimeout(PROBE_TIMEOUT);
+                if (connection.getResponseCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+                    repository.recordFailure(this.cooldown);
+                else
+                    repository.recordSuccess(System.nanoTime() - start);
+            } catch (IOException e) {
+                repository.recordFailure(this.cooldown);
+            } finally {
+                if (connection != null)
+                    connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Records that a request to the specified repository was answered after
+     * the specified amount of nanoseconds.
+     *
+     * @param repository Repository that answered
+     * @param nanos Time until the answer
+     */
+    public void recordSuccess(Repository repository, long nanos) {
+        repository.recordSuccess(nanos);
+    }
+
+    /**
+     * Records that a request to the specified repository failed.
+     *
+     * @param repository Repository that failed
+     */
+    public void recordFailure(Repository repository) {
+        repository.recordFailure(this.cooldown);
+    }
+
+    /**
+     * A repository of the pool and its statistics.
+     */
+    public static final class Repository {
+
+        private final URL url;
+        private double latency = -1;
+        private double errorRate;
+        private long requests;
+        private long failures;
+        private int failuresInRow;
+        private volatile long retryAt = System.nanoTime();
+
+        private Repository(URL url) {
+            this.url = url;
+        }
+
+        /**
+         * Returns the root URL of this repository.
+         *
+         * @return Root URL
+         */
+        public URL getUrl() {
+            return this.url;
+        }
+
+        /**
+         * Returns the rolling average time this repository takes to answer
+         * in milliseconds, or -1 if it has not answered yet.
+         *
+         * @return Average latency
+         */
+        public synchronized double getLatency() {
+            return this.latency < 0 ? -1 : this.latency / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * Returns the rolling share of requests to this repository that
+         * failed, between 0 and 1.
+         *
+         * @return Error rate
+         */
+        public synchronized double getErrorRate() {
+            return this.errorRate;
+        }
+
+        /**
+         * Returns the amount of requests made to this repository.
+         *
+         * @return Requests made
+         */
+        public synchronized long getRequests() {
+            return this.requests;
+        }
+
+        /**
+         * Returns the amount of requests to this repository that failed.
+         *
+         * @return Failed requests
+         */
+        public synchronized long getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * Returns true if this repository is not cooling down after
+         * failures.
+         *
+         * @return True if available
+         */
+        public boolean isAvailable() {
+            return System.nanoTime() - this.retryAt >= 0;
+        }
+
+        private synchronized double getScore() {
+            // Repositories that have not answered yet are tried before any
+            // that answered, so that their latency gets known
+            double latency = Math.max(0, this.latency);
+            return latency * (1 + 4 * this.errorRate);
+        }
+
+        private synchronized void recordSuccess(long nanos) {
+            this.requests++;
+            this.failuresInRow = 0;
+            this.latency = this.latency < 0 ? nanos : this.latency + SMOOTHING * (nanos - this.latency);
+            this.errorRate -= SMOOTHING * this.errorRate;
+            this.retryAt = System.nanoTime();
+        }
+
+        private synchronized void recordFailure(long cooldown) {
+            this.requests++;
+            this.failures++;
+            this.errorRate += SMOOTHING * (1 - this.errorRate);
+            long backoff = cooldown << Math.min(this.failuresInRow++, 6);
+            this.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        }
+
+        @Override
+        public String toString() {
+            return this.url.toString();
+        }
+
+    }
+
+}
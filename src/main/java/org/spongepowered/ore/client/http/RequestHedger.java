@@ -0,0 +1,262 @@
+package org.spongepowered.ore.client.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cuts the tail latency of requests that are safe to repeat. If a request
+ * has not been answered once it takes longer than a given percentile of
+ * recent requests, a second one is sent and whichever answers first wins.
+ * Keeps the latency and hedging statistics of every request made through
+ * it.
+ */
+public final class RequestHedger {
+
+    /**
+     * A hedger that never hedges.
+     */
+    public static final RequestHedger DISABLED = new RequestHedger(0, 0);
+
+    private static final int MIN_SAMPLES = 20;
+    private static final int WINDOW = 200;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("Ore Request #%d")
+        .setDaemon(true)
+        .build());
+
+    private final double percentile;
+    private final long minDelay;
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * Constructs a new hedger.
+     *
+     * @param percentile Percentile of recent latencies after which a request
+     *        is hedged, such as 95, zero to never hedge
+     * @param minDelay Milliseconds to wait at least before hedging
+     */
+    public RequestHedger(double percentile, long minDelay) {
+        this.percentile = Math.min(100, percentile);
+        this.minDelay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelay));
+    }
+
+    /**
+     * Returns true if this hedger sends second requests.
+     *
+     * @return True if enabled
+     */
+    public boolean isEnabled() {
+        return this.percentile > 0;
+    }
+
+    /**
+     * Returns the amount of requests made through this hedger.
+     *
+     * @return Requests made
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Returns the amount of requests a second request was sent for.
+     *
+     * @return Hedged requests
+     */
+    public long getHedges() {
+        return this.hedges.get();
+    }
+
+    /**
+     * Returns the amount of hedged requests the second request answered
+     * first.
+     *
+     * @return Hedges that won
+     */
+    public long getHedgeWins() {
+        return this.hedgeWins.get();
+    }
+
+    /**
+     * Returns the share of requests a second request was sent for, between
+     * 0 and 1.
+     *
+     * @return Hedge rate
+     */
+    public double getHedgeRate() {
+        long requests = this.requests.get();
+        return requests == 0 ? 0 : (double) this.hedges.get() / requests;
+    }
+
+    /**
+     * Returns the specified percentile of recent request latencies in
+     * milliseconds, or -1 if no request has been answered yet.
+     *
+     * @param percentile Percentile, such as 50 or 99
+     * @return Latency at percentile
+     */
+    public double getLatency(double percentile) {
+        long nanos = getLatencyNanos(percentile);
+        return nanos < 0 ? -1 : (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the time after which an unanswered request is hedged in
+     * nanoseconds, or -1 if requests are currently not hedged.
+     *
+     * @return Hedge delay
+     */
+    public long getDelay() {
+        if (!isEnabled())
+            return -1;
+        synchronized (this) {
+            if (this.sampleCount < MIN_SAMPLES)
+                // Not enough known about normal latency yet
+                return -1;
+        }
+        return Math.max(this.minDelay, getLatencyNanos(this.percentile));
+    }
+
+    /**
+     * Makes a request by calling the primary {@link Callable}. If it does
+     * not return within the hedge delay, the hedge is called as well and the
+     * first of the two to return is used. The result of the other one is
+     * passed to the discard {@link Consumer} once it arrives. A failure is
+     * only thrown if both fail.
+     *
+     * @param primary Request to make
+     * @param hedge Equivalent request to make if the first one is slow
+     * @param discard Releases the result that lost
+     * @param <T> Result type
+     * @return Result that answered first
+     * @throws IOException
+     */
+    public <T> T call(Callable<T> primary, Callable<T> hedge, Consumer<T> discard) throws IOException {
+        this.requests.incrementAndGet();
+        long start = System.nanoTime();
+        long delay = getDelay();
+        if (delay < 0) {
+            T result = unwrap(primary);
+            record(System.nanoTime() - start);
+            return result;
+        }
+
+        CompletableFuture<T> first = submit(primary);
+        try {
+            T result = first.get(delay, TimeUnit.NANOSECONDS);
+            record(System.nanoTime() - start);
+            return result;
+        } catch (TimeoutException e) {
+            // Slow, race a second request
+        } catch (InterruptedException e) {
+            first.thenAccept(discard);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request interrupted");
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+
+        this.hedges.incrementAndGet();
+        CompletableFuture<T> second = submit(hedge);
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((result, failure) -> settle(winner, result, failure, failures, discard, false));
+        second.whenComplete((result, failure) -> settle(winner, result, failure, failures, discard, true));
+        try {
+            T result = winner.get();
+            record(System.nanoTime() - start);
+            return result;
+        } catch (InterruptedException e) {
+            winner.thenAccept(discard);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request interrupted");
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private <T> void settle(CompletableFuture<T> winner, T result, Throwable failure, AtomicInteger failures,
+        Consumer<T> discard, boolean hedge) {
+        if (failure != null) {
+            // Only fail once both did
+            if (failures.incrementAndGet() == 2)
+                winner.completeExceptionally(failure);
+            return;
+        }
+        if (winner.complete(result)) {
+            if (hedge)
+                this.hedgeWins.incrementAndGet();
+        } else
+            discard.accept(result);
+    }
+
+    private static <T> CompletableFuture<T> submit(Callable<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                future.complete(request.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private static <T> T unwrap(Callable<T> request) throws IOException {
+        try {
+            return request.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static IOException rethrow(ExecutionException e) throws IOException {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+            throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        throw new IOException(cause);
+    }
+
+    private synchronized void record(long nanos) {
+        this.samples[this.nextSample] = nanos;
+        this.nextSample = (this.nextSample + 1) % this.samples.length;
+        this.sampleCount = Math.min(this.sampleCount + 1, this.samples.length);
+    }
+
+    private long getLatencyNanos(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (this.sampleCount == 0)
+                return -1;
+            sorted = Arrays.copyOf(this.samples, this.sampleCount);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.spongepowered.ore.client.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.ore.client.http.PartialDownload.Segment;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Transfers the remaining {@link Segment}s of a {@link PartialDownload}
+ * concurrently, requesting each one with a "Range" header and writing it at
+ * its offset in the preallocated partial file.
+ */
+public final class SegmentedTransfer {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long CHECKPOINT_INTERVAL = 1 << 20;
+
+    private final PluginDownload download;
+    private final PartialDownload partial;
+    private final URL url;
+    private final BandwidthLimiter limiter;
+    private final DownloadScheduler scheduler;
+
+    /**
+     * Constructs a new transfer for the specified opened download.
+     *
+     * @param download Opened download
+     * @param partial Partial download to fill
+     * @param settings Transfer settings
+     */
+    public SegmentedTransfer(PluginDownload download, PartialDownload partial, TransferSettings settings) {
+        this.download = download;
+        this.partial = partial;
+        this.url = download.getResolvedUrl();
+        this.limiter = settings.getLimiter();
+        this.scheduler = settings.getScheduler();
+    }
+
+    /**
+     * Transfers every remaining segment. The first remaining segment is read
+     * from the download's already open stream if that starts where the
+     * segment continues, such as at the very start of a fresh download or
+     * for a resumed range. If the server does not answer the first ranged
+     * requests with partial content, nothing is read from the download and
+     * false is returned so that it can be started over as a single stream
+     * instead.
+     *
+     * <p>Besides the slot the download already holds for the host, each
+     * extra connection takes a free slot from the {@link DownloadScheduler}
+     * without waiting for one. Segments beyond those are requested one
+     * after the other as connections finish theirs, so a download never
+     * opens more connections to a host than it is allowed.</p>
+     *
+     * @return True if transferred, false if the server ignored ranges
+     * @throws IOException
+     */
+    public boolean transferTo() throws IOException {
+        List<Segment> remaining = this.partial.getSegments().stream()
+            .filter(segment -> !segment.isComplete())
+            .collect(Collectors.toList());
+        if (remaining.isEmpty())
+            return true;
+
+        Segment first = remaining.get(0);
+        boolean reuseStream = first.getPosition() == this.download.getStreamOffset();
+        Queue<Segment> queue = new ConcurrentLinkedQueue<>(reuseStream
+            ? remaining.subList(1, remaining.size()) : remaining);
+
+        // The download's own slot covers one connection, either its open
+        // stream or its first ranged request
+        String host = this.url.getHost();
+        int extra = 0;
+        while (extra < queue.size() - (reuseStream ? 0 : 1) && this.scheduler.tryAcquireHost(host))
+            extra++;
+
+        ExecutorService executor = Executors.newFixedThreadPool(extra + 1, new ThreadFactoryBuilder()
+            .setNameFormat("Ore Download Segment #%d")
+            .setDaemon(true)
+            .build());
+        Map<Segment, HttpURLConnection> connections = new LinkedHashMap<>();
+        try {
+            // Open a ranged request for every connection before touching
+            // the file so we can still fall back if the server does not
+            // honor them
+            Map<Segment, Future<HttpURLConnection>> opening = new LinkedHashMap<>();
+            for (int i = reuseStream ? 0 : -1; i < extra && !queue.isEmpty(); i++) {
+                Segment segment = queue.remove();
+                opening.put(segment, executor.submit(() -> openRange(segment)));
+            }
+            for (Map.Entry<Segment, Future<HttpURLConnection>> entry : opening.entrySet())
+                connections.put(entry.getKey(), await(entry.getValue()));
+            for (HttpURLConnection connection : connections.values()) {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+                    return false;
+            }
+
+            // The download's open stream is done with once its segment is,
+            // or right away if it is not used, giving up its connection
+            InputStream in = this.download.getInputStream().get();
+            if (!reuseStream)
+                in.close();
+            try (RandomAccessFile file = new RandomAccessFile(this.partial.getFile().toFile(), "rw")) {
+                if (file.length() != this.partial.getLength())
+                    file.setLength(this.partial.getLength());
+                FileChannel out = file.getChannel();
+                List<Future<?>> transfers = new ArrayList<>();
+                if (reuseStream) {
+                    transfers.add(executor.submit(() -> {
+                        try {
+                            copy(in, out, first);
+                        } finally {
+                            in.close();
+                        }
+                        return copyQueued(queue, out);
+                    }));
+                }
+                for (Map.Entry<Segment, HttpURLConnection> entry : connections.entrySet()) {
+                    Segment segment = entry.getKey();
+                    HttpURLConnection connection = entry.getValue();
+                    transfers.add(executor.submit(() -> {
+                        try {
+                            copy(connection.getInputStream(), out, segment);
+                        } finally {
+                            connection.disconnect();
+                        }
+                        return copyQueued(queue, out);
+                    }));
+                }
+
+                try {
+                    for (Future<?> transfer : transfers)
+                        await(transfer);
+                } finally {
+                    // Record progress so a failed transfer can be resumed
+                    this.partial.checkpoint(out);
+                }
+            }
+            return true;
+        } finally {
+            executor.shutdownNow();
+            connections.values().forEach(HttpURLConnection::disconnect);
+            for (int i = 0; i < extra; i++)
+                this.scheduler.releaseHost(host);
+        }
+    }
+
+    private HttpURLConnection openRange(Segment segment) throws IOException {
+        HttpURLConnection connection = HttpUtils.openConnection(this.url);
+        connection.setRequestProperty("Range", "bytes=" + segment.getPosition() + "-" + (segment.getEnd() - 1));
+        if (this.partial.getValidator() != null)
+            connection.setRequestProperty("If-Range", this.partial.getValidator());
+        connection.connect();
+        return connection;
+    }
+
+    private Void copyQueued(Queue<Segment> queue, FileChannel out) throws IOException {
+        Segment segment;
+        while ((segment = queue.poll()) != null) {
+            HttpURLConnection connection = openRange(segment);
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+                    throw new IOException("server stopped honoring ranges, got " + connection.getResponseCode());
+                copy(connection.getInputStream(), out, segment);
+            } finally {
+                connection.disconnect();
+            }
+        }
+        return null;
+    }
+
+    private Void copy(InputStream in, FileChannel out, Segment segment) throws IOException {
+        if (segment.getStart() == 0)
+            // Hash what an earlier attempt wrote so we can keep hashing
+            // this segment as it streams
+            this.partial.catchUp(out, segment.getPosition());
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        long sinceCheckpoint = 0;
+        while (!segment.isComplete()) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, segment.getRemaining()));
+            if (read == -1)
+                throw new EOFException("download segment ended " + segment.getRemaining() + " bytes early");
+            this.limiter.acquire(read);
+            wrapped.clear();
+            wrapped.limit(read);
+            long position = segment.getPosition();
+            while (wrapped.hasRemaining())
+                position += out.write(wrapped, position);
+            this.partial.update(buffer, 0, read, segment.getPosition());
+            segment.advance(read);
+
+            sinceCheckpoint += read;
+            if (sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                this.partial.checkpoint(out);
+                sinceCheckpoint = 0;
+            }
+        }
+        return null;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("download interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.spongepowered.ore.client.http;
+
+import ninja.leaping.configurate.ConfigurationNode;
+
+/**
+ * Settings that control how {@link PluginDownload}s are transferred to disk.
+ */
+public final class TransferSettings {
+
+    /**
+     * Settings that transfer every download as a single stream.
+     */
+    public static final TransferSettings DEFAULT = new TransferSettings(Long.MAX_VALUE, 1,
+        BandwidthLimiter.UNLIMITED, new DownloadScheduler(4, 2), false);
+
+    private final long segmentedThreshold;
+    private final int segments;
+    private final BandwidthLimiter limiter;
+    private final DownloadScheduler scheduler;
+    private final boolean deltaUpdates;
+
+    /**
+     * Constructs new transfer settings.
+     *
+     * @param segmentedThreshold Minimum download size in bytes for the
+     *        download to be split into segments
+     * @param segments Amount of concurrent segments to split large downloads
+     *        into
+     * @param limiter Limiter shared by every download
+     * @param scheduler Scheduler shared by every download
+     * @param deltaUpdates True if updates should be requested as patches
+     *        against the installed version first
+     */
+    public TransferSettings(long segmentedThreshold, int segments, BandwidthLimiter limiter,
+        DownloadScheduler scheduler, boolean deltaUpdates) {
+        this.segmentedThreshold = segmentedThreshold;
+        this.segments = segments;
+        this.limiter = limiter;
+        this.scheduler = scheduler;
+        this.deltaUpdates = deltaUpdates;
+    }
+
+    /**
+     * Returns the minimum size in bytes a download must have before it is
+     * split into concurrent segments.
+     *
+     * @return Segmented download threshold
+     */
+    public long getSegmentedThreshold() {
+        return this.segmentedThreshold;
+    }
+
+    /**
+     * Returns the amount of concurrent segments to split large downloads
+     * into. A value of one or less disables segmented downloads.
+     *
+     * @return Amount of segments
+     */
+    public int getSegments() {
+        return this.segments;
+    }
+
+    /**
+     * Returns the {@link BandwidthLimiter} shared by every download.
+     *
+     * @return Bandwidth limiter
+     */
+    public BandwidthLimiter getLimiter() {
+        return this.limiter;
+    }
+
+    /**
+     * Returns the {@link DownloadScheduler} shared by every download.
+     *
+     * @return Download scheduler
+     */
+    public DownloadScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Returns true if updates should be requested as {@link DeltaPatch}es
+     * against the installed version before falling back to a full download.
+     *
+     * @return True if delta updates are enabled
+     */
+    public boolean isDeltaUpdates() {
+        return this.deltaUpdates;
+    }
+
+    /**
+     * Reads transfer settings from the specified {@link ConfigurationNode}.
+     *
+     * @param node Node to read from
+     * @return Transfer settings
+     */
+    public static TransferSettings fromConfig(ConfigurationNode node) {
+        return new TransferSettings(
+            node.getNode("segmentedThreshold").getLong(DEFAULT.segmentedThreshold),
+            node.getNode("segments").getInt(DEFAULT.segments),
+            new BandwidthLimiter(
+                node.getNode("maxBytesPerSecond").getLong(0),
+                node.getNode("minBytesPerSecond").getLong(64 * 1024),
+                node.getNode("adaptiveTps").getDouble(0)),
+            new DownloadScheduler(
+                node.getNode("maxConcurrentDownloads").getInt(DEFAULT.scheduler.getMaxDownloads()),
+                node.getNode("maxDownloadsPerHost").getInt(DEFAULT.scheduler.getMaxDownloadsPerHost())),
+            node.getNode("deltaUpdates").getBoolean(DEFAULT.deltaUpdates));
+    }
+
+}
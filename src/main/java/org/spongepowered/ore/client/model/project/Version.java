@@ -19,6 +19,7 @@ public final class Version {
     private String pluginId;
     private Channel channel;
     private long fileSize;
+    private String md5;
 
     /**
      * Returns this Version's unique ID.
@@ -83,6 +84,15 @@ public final class Version {
         return this.fileSize;
     }
 
+    /**
+     * Returns the hex encoded MD5 hash of this version's download file.
+     *
+     * @return MD5 hash of download
+     */
+    public String getMd5() {
+        return this.md5;
+    }
+
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
@@ -12,10 +12,16 @@ import org.spongepowered.ore.SpongeOrePlugin;
 import org.spongepowered.ore.client.Installation;
 import org.spongepowered.ore.client.OreClient;
 import org.spongepowered.ore.client.exception.UnsupportedPlatformVersion;
+import org.spongepowered.ore.client.http.RepositoryPool;
+import org.spongepowered.ore.client.http.RequestHedger;
 import org.spongepowered.ore.client.model.project.Project;
 import org.spongepowered.ore.client.model.user.User;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -33,6 +39,7 @@ public final class CommandExecutors {
 
     public static final String TASK_NAME_DOWNLOAD = "Ore Download";
     public static final String TASK_NAME_SEARCH = "Ore Search";
+    public static final String TASK_NAME_BUNDLE = "Ore Bundle";
     private final SpongeOrePlugin plugin;
     private final OreClient client;
     private final Game game;
@@ -99,6 +106,37 @@ public final class CommandExecutors {
         return CommandResult.success();
     }
 
+    /**
+     * Displays the latency and error statistics of the repositories and how
+     * often lookups were hedged.
+     *
+     * @param src source of command
+     * @param context CommandContext
+     * @return result of command
+     */
+    public CommandResult showStats(CommandSource src, CommandContext context) {
+        RepositoryPool repositories = this.client.getRepositories();
+        Text.Builder message = Text.builder();
+        for (RepositoryPool.Repository repository : repositories.getRanked()) {
+            String latency = repository.getLatency() < 0 ? "?" : String.format("%.0f", repository.getLatency());
+            String stats = String.format("%s ms, %.0f%% errors, %d of %d requests failed%s", latency,
+                repository.getErrorRate() * 100, repository.getFailures(), repository.getRequests(),
+                repository.isAvailable() ? "" : ", cooling down");
+            message.append(REPOSITORY.apply(ImmutableMap.of(
+                "url", of(repository.getUrl().toString()),
+                "content", of(stats)
+            )).build()).append(NEW_LINE);
+        }
+
+        RequestHedger hedger = repositories.getHedger();
+        String lookups = String.format("%d made, p50 %.0f ms, p95 %.0f ms, p99 %.0f ms, %.1f%% hedged (%d won)",
+            hedger.getRequests(), hedger.getLatency(50), hedger.getLatency(95), hedger.getLatency(99),
+            hedger.getHedgeRate() * 100, hedger.getHedgeWins());
+        message.append(LOOKUPS.apply(ImmutableMap.of("content", of(lookups))).build());
+        src.sendMessage(message.build());
+        return CommandResult.success();
+    }
+
     /**
      * Acts as a proxy to run a command with confirmation.
      *
@@ -179,6 +217,97 @@ public final class CommandExecutors {
         return CommandResult.success();
     }
 
+    /**
+     * Packs plugins and their dependencies into a bundle file.
+     *
+     * @param src source of command
+     * @param context CommandContext
+     * @return result of command
+     */
+    public CommandResult exportBundle(CommandSource src, CommandContext context) {
+        Path file = Paths.get(context.<String>getOne("file").get());
+        Map<String, String> plugins = new LinkedHashMap<>();
+        for (String plugin : context.<String>getAll("plugins")) {
+            // Accepts "pluginId" or "pluginId@version"
+            int separator = plugin.indexOf('@');
+            if (separator == -1)
+                plugins.put(plugin, VERSION_RECOMMENDED);
+            else
+                plugins.put(plugin.substring(0, separator), plugin.substring(separator + 1));
+        }
+
+        this.plugin.newAsyncTask(TASK_NAME_BUNDLE, src, () -> {
+            this.client.setMessenger(msg -> src.sendMessage(CLIENT_MESSAGE
+                    .apply(ImmutableMap.of("message", msg)).build()));
+            int bundled = this.client.exportBundle(file, plugins);
+            src.sendMessage(BUNDLE_EXPORTED.apply(ImmutableMap.of(
+                "content", of(bundled),
+                "file", of(file.toAbsolutePath().toString())
+            )).build());
+            return null;
+        });
+        return CommandResult.success();
+    }
+
+    /**
+     * Installs the plugins of a bundle file.
+     *
+     * @param src source of command
+     * @param context CommandContext
+     * @return result of command
+     */
+    public CommandResult importBundle(CommandSource src, CommandContext context) {
+        String fileName = context.<String>getOne("file").get();
+        boolean ignorePlatformVersion = context.hasAny("ignorePlatformVersion");
+        this.plugin.newAsyncTask(TASK_NAME_BUNDLE, src, () -> {
+            this.client.setMessenger(msg -> src.sendMessage(CLIENT_MESSAGE
+                    .apply(ImmutableMap.of("message", msg)).build()));
+
+            int imported;
+            try {
+                imported = this.client.importBundle(Paths.get(fileName), ignorePlatformVersion);
+            } catch (UnsupportedPlatformVersion e) {
+                src.sendMessage(UNSUPPORTED_PLATFORM_VERSION, ImmutableMap.of(
+                    "required", of(e.getRequired()),
+                    "current", of(e.getCurrent())));
+                src.sendMessage(CONFIRM);
+                this.confirmations.put(src.getIdentifier(), "ore bundle import --ignorePlatformVersion " + fileName);
+                return null;
+            }
+
+            src.sendMessage(BUNDLE_IMPORTED.apply(ImmutableMap.of("content", of(imported))).build());
+            return null;
+        });
+        return CommandResult.success();
+    }
+
+    /**
+     * Restores the mods directory to a snapshot taken before changes were
+     * last applied to it, once the server stops.
+     *
+     * @param src source of command
+     * @param context CommandContext
+     * @return result of command
+     */
+    public CommandResult rollback(CommandSource src, CommandContext context) {
+        if (context.hasAny("cancel")) {
+            this.client.cancelRollback();
+            src.sendMessage(ROLLBACK_CANCELLED);
+            return CommandResult.success();
+        }
+
+        if (context.hasAny("list")) {
+            List<String> snapshots = ((CommandTry<List<String>>) this.client::getSnapshots).callFor(src);
+            src.sendMessage(SNAPSHOTS.apply(ImmutableMap.of("content", of(String.join(", ", snapshots)))).build());
+            return CommandResult.success();
+        }
+
+        String snapshot = context.<String>getOne("snapshot").orElse(null);
+        String name = ((CommandTry<String>) () -> this.client.rollback(snapshot)).callFor(src);
+        src.sendMessage(ROLLBACK_SCHEDULED.apply(ImmutableMap.of("content", of(name))).build());
+        return CommandResult.success();
+    }
+
     /**
      * Uninstalls a plugin.
      *
@@ -1,5 +1,6 @@
 package org.spongepowered.ore.cmd;
 
+import static org.spongepowered.api.command.args.GenericArguments.allOf;
 import static org.spongepowered.api.command.args.GenericArguments.choices;
 import static org.spongepowered.api.command.args.GenericArguments.flags;
 import static org.spongepowered.api.command.args.GenericArguments.onlyOne;
@@ -9,12 +10,16 @@ import static org.spongepowered.api.command.args.GenericArguments.seq;
 import static org.spongepowered.api.command.args.GenericArguments.string;
 import static org.spongepowered.api.text.Text.of;
 import static org.spongepowered.ore.Messages.*;
+import static org.spongepowered.ore.Permissions.CMD_BUNDLE_EXPORT;
+import static org.spongepowered.ore.Permissions.CMD_BUNDLE_IMPORT;
 import static org.spongepowered.ore.Permissions.CMD_DESCRIBE;
 import static org.spongepowered.ore.Permissions.CMD_DOWNLOAD;
 import static org.spongepowered.ore.Permissions.CMD_INSTALL;
 import static org.spongepowered.ore.Permissions.CMD_RELOAD;
+import static org.spongepowered.ore.Permissions.CMD_ROLLBACK;
 import static org.spongepowered.ore.Permissions.CMD_SEARCH;
 import static org.spongepowered.ore.Permissions.CMD_SHOW;
+import static org.spongepowered.ore.Permissions.CMD_STATS;
 import static org.spongepowered.ore.Permissions.CMD_UNINSTALL;
 import static org.spongepowered.ore.Permissions.CMD_UPDATE;
 import static org.spongepowered.ore.Permissions.CMD_VERSION;
@@ -34,6 +39,7 @@ public final class CommandSpecs {
     public static final String FLAG_CATEGORIES = "-categories";
     public static final String FLAG_SORT = "-sort";
     public static final String FLAG_IGNORE_PLATFORM_VERSION = "-ignorePlatformVersion";
+    public static final String FLAG_LIST = "-list";
 
     private final CommandSpec install;
     private final CommandSpec download;
@@ -45,6 +51,11 @@ public final class CommandSpecs {
     private final CommandSpec describe;
     private final CommandSpec confirm;
     private final CommandSpec version;
+    private final CommandSpec stats;
+    private final CommandSpec bundleExport;
+    private final CommandSpec bundleImport;
+    private final CommandSpec bundle;
+    private final CommandSpec rollback;
     private final CommandSpec root;
 
     public CommandSpecs(CommandExecutors cmds) {
@@ -133,6 +144,39 @@ public final class CommandSpecs {
             .executor(cmds::showVersion)
             .build();
 
+        this.stats = CommandSpec.builder()
+            .permission(CMD_STATS)
+            .description(DESCRIPTION_STATS)
+            .executor(cmds::showStats)
+            .build();
+
+        this.bundleExport = CommandSpec.builder()
+            .permission(CMD_BUNDLE_EXPORT)
+            .description(DESCRIPTION_BUNDLE_EXPORT)
+            .arguments(onlyOne(string(of("file"))), optional(allOf(string(of("plugins")))))
+            .executor(cmds::exportBundle)
+            .build();
+
+        this.bundleImport = CommandSpec.builder()
+            .permission(CMD_BUNDLE_IMPORT)
+            .description(DESCRIPTION_BUNDLE_IMPORT)
+            .arguments(flags().flag(FLAG_IGNORE_PLATFORM_VERSION).buildWith(onlyOne(string(of("file")))))
+            .executor(cmds::importBundle)
+            .build();
+
+        this.bundle = CommandSpec.builder()
+            .description(DESCRIPTION_BUNDLE)
+            .child(this.bundleExport, "export")
+            .child(this.bundleImport, "import")
+            .build();
+
+        this.rollback = CommandSpec.builder()
+            .permission(CMD_ROLLBACK)
+            .description(DESCRIPTION_ROLLBACK)
+            .arguments(flags().flag(FLAG_CANCEL).flag(FLAG_LIST).buildWith(optional(onlyOne(string(of("snapshot"))))))
+            .executor(cmds::rollback)
+            .build();
+
         this.root = CommandSpec.builder()
             .permission(CMD_VERSION)
             .description(DESCRIPTION_VERSION)
@@ -147,6 +191,9 @@ public final class CommandSpecs {
             .child(this.whois, "whois", "user", "author")
             .child(this.confirm, "confirm")
             .child(this.version, "version")
+            .child(this.stats, "stats")
+            .child(this.bundle, "bundle")
+            .child(this.rollback, "rollback")
             .build();
     }
 
@@ -190,6 +237,26 @@ public final class CommandSpecs {
         return this.version;
     }
 
+    public CommandSpec getStatsSpec() {
+        return this.stats;
+    }
+
+    public CommandSpec getBundleExportSpec() {
+        return this.bundleExport;
+    }
+
+    public CommandSpec getBundleImportSpec() {
+        return this.bundleImport;
+    }
+
+    public CommandSpec getBundleSpec() {
+        return this.bundle;
+    }
+
+    public CommandSpec getRollbackSpec() {
+        return this.rollback;
+    }
+
     public CommandSpec getRootSpec() {
         return this.root;
     }
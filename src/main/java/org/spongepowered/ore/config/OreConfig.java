@@ -11,6 +11,7 @@ import ninja.leaping.configurate.objectmapping.serialize.TypeSerializers;
 import org.spongepowered.api.asset.Asset;
 
 import java.io.IOException;
+import java.net.URL;
 import java.nio.file.Path;
 
 import static java.nio.file.Files.*;
@@ -48,6 +49,19 @@ public final class OreConfig {
         return this;
     }
 
+    /**
+     * Loads the config into a root node from the specified {@link URL},
+     * such as the default config bundled with the plugin.
+     *
+     * @param url URL to load from
+     * @return This instance
+     * @throws IOException
+     */
+    public OreConfig load(URL url) throws IOException {
+        this.root = HoconConfigurationLoader.builder().setURL(url).setDefaultOptions(options).build().load();
+        return this;
+    }
+
     /**
      * Saves the root node at the specified {@link Path}.
      *
@@ -0,0 +1,514 @@
+package org.spongepowered.ore.mirror;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.size;
+import static org.spongepowered.ore.client.Routes.DOWNLOAD;
+import static org.spongepowered.ore.client.Routes.PROJECT;
+import static org.spongepowered.ore.client.Routes.VERSION;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.slf4j.Logger;
+import org.spongepowered.ore.SpongeOrePlugin;
+import org.spongepowered.ore.client.AtomicFiles;
+import org.spongepowered.ore.client.OreClient;
+import org.spongepowered.ore.client.http.DeltaPatch;
+import org.spongepowered.ore.client.http.DownloadScheduler;
+import org.spongepowered.ore.client.http.HttpUtils;
+import org.spongepowered.ore.client.model.project.Project;
+import org.spongepowered.ore.client.model.project.Version;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * An HTTP server that answers the same {@link org.spongepowered.ore.client.Routes}
+ * as Ore from a local cache, so that every other server on the network can
+ * point its repository URL at this one. Plugin files are fetched from
+ * upstream once and kept, everything else is kept for a limited time and
+ * still served if upstream becomes unreachable.
+ */
+public final class OreMirror {
+
+    private static final Pattern FILE_ROUTE =
+        Pattern.compile("/api/projects/([^/]+)/versions/([^/]+)/(download|delta)");
+    private static final String ARTIFACTS_DIR = "artifacts";
+    private static final String DELTAS_DIR = "deltas";
+    private static final String PATCH_EXTENSION = ".patch";
+    private static final int MAX_CACHED_RESPONSES = 10000;
+
+    private final URL upstream;
+    private final Path cacheDir;
+    private final InetSocketAddress address;
+    private final Logger log;
+    private final Gson gson = new Gson();
+    private final DownloadScheduler scheduler;
+    private final LoadingCache<String, Response> responses;
+    private HttpServer server;
+    private final int maxConnections;
+    private final int connectionQueue;
+    private ExecutorService executor;
+
+    /**
+     * Constructs a new mirror.
+     *
+     * @param upstream Root URL of the repository to mirror
+     * @param cacheDir Directory to keep plugin files in
+     * @param address Address to serve on
+     * @param metadataTtl Seconds to keep anything but plugin files before
+     *        asking upstream again
+     * @param upstreamConnections Maximum amount of plugin files fetched from
+     *        upstream at once
+     * @param maxConnections Maximum amount of connections served at once
+     * @param connectionQueue Maximum amount of connections waiting to be
+     *        served, any further ones are closed
+     * @param log Logger to report failures to
+     */
+    public OreMirror(URL upstream, Path cacheDir, InetSocketAddress address, long metadataTtl,
+        int upstreamConnections, int maxConnections, int connectionQueue, Logger log) {
+        this.upstream = upstream;
+        this.cacheDir = cacheDir;
+        this.address = address;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectionQueue = Math.max(1, connectionQueue);
+        this.log = log;
+        this.scheduler = new DownloadScheduler(upstreamConnections, upstreamConnections);
+        // Entries are refreshed by the first request after they expire while
+        // everyone else is still served the old one, which is also kept if
+        // upstream cannot be reached
+        this.responses = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_RESPONSES)
+            .refreshAfterWrite(Math.max(1, metadataTtl), TimeUnit.SECONDS)
+            .build(new CacheLoader<String, Response>() {
+                @Override
+                public Response load(String pathAndQuery) throws IOException {
+                    return fetchResponse(pathAndQuery);
+                }
+            });
+    }
+
+    /**
+     * Returns the root URL of the mirrored repository.
+     *
+     * @return Upstream root URL
+     */
+    public URL getUpstream() {
+        return this.upstream;
+    }
+
+    /**
+     * Returns the address the mirror is serving on.
+     *
+     * @return Bound address
+     */
+    public InetSocketAddress getAddress() {
+        return this.server != null ? this.server.getAddress() : this.address;
+    }
+
+    /**
+     * Starts serving.
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        this.server = HttpServer.create(this.address, 0);
+        this.server.createContext("/api/", this::handle);
+        // Clients keep several connections open per download while they
+        // split it, so every connection gets its own thread, up to a limit
+        // past which they wait for one and are eventually turned away
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(this.maxConnections, this.maxConnections,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(this.connectionQueue), new ThreadFactoryBuilder()
+            .setNameFormat("Ore Mirror #%d")
+            .setDaemon(true)
+            .build());
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * Stops serving.
+     */
+    public void stop() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.executor.shutdownNow();
+            this.server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getRawPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            Matcher matcher = FILE_ROUTE.matcher(path);
+            if (!matcher.matches())
+                sendResponse(exchange, getResponse(query != null ? path + '?' + query : path));
+            else if (matcher.group(3).equals("download"))
+                sendFile(exchange, getArtifact(matcher.group(1), matcher.group(2)), null);
+            else {
+                String from = getParameter(query, "from");
+                if (from == null) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                    return;
+                }
+                Path target = getArtifact(matcher.group(1), matcher.group(2));
+                sendFile(exchange, getDelta(matcher.group(1), from, target), target.getFileName().toString());
+            }
+        } catch (FileNotFoundException e) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+        } catch (IOException e) {
+            this.log.warn("Could not serve " + exchange.getRequestURI() + " from " + this.upstream + ".", e);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_GATEWAY, -1);
+        } catch (RuntimeException e) {
+            this.log.error("An error occurred while serving " + exchange.getRequestURI() + ".", e);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response getResponse(String pathAndQuery) throws IOException {
+        try {
+            return this.responses.get(pathAndQuery);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Response fetchResponse(String pathAndQuery) throws IOException {
+        HttpURLConnection connection = HttpUtils.openConnection(new URL(this.upstream + pathAndQuery));
+        try {
+            int status = connection.getResponseCode();
+            if (status >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+                // Keep serving what we have until upstream recovers
+                throw new IOException("upstream answered " + pathAndQuery + " with " + status);
+            InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+                : connection.getErrorStream();
+            byte[] body = in != null ? ByteStreams.toByteArray(in) : new byte[0];
+            return new Response(status, connection.getContentType(), body);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private <T> T getModel(Class<T> modelClass, String route, Object... params) throws IOException {
+        Response response = getResponse(String.format(route, params));
+        if (response.status == HttpURLConnection.HTTP_NOT_FOUND)
+            throw new FileNotFoundException(String.format(route, params));
+        try {
+            T model = this.gson.fromJson(new String(response.body, "UTF-8"), modelClass);
+            if (model == null)
+                throw new FileNotFoundException(String.format(route, params));
+            return model;
+        } catch (JsonParseException e) {
+            throw new IOException("upstream sent malformed " + modelClass.getSimpleName(), e);
+        }
+    }
+
+    private Path getArtifact(String rawId, String rawVersion) throws IOException {
+        // Plugin files never change, keep them under their exact version
+        String id = decode(rawId);
+        String version = decode(rawVersion);
+        if (version.equals(OreClient.VERSION_RECOMMENDED)) {
+            Version recommended = getModel(Project.class, PROJECT, rawId).getRecommendedVersion();
+            if (recommended == null)
+                throw new FileNotFoundException(id + '@' + version);
+            version = recommended.getName();
+        }
+
+        Path versionDir = this.cacheDir.resolve(ARTIFACTS_DIR).resolve(AtomicFiles.toFileName(id))
+            .resolve(AtomicFiles.toFileName(version));
+        Optional<Path> cached = findArtifact(versionDir);
+        if (cached.isPresent())
+            return cached.get();
+
+        String exactVersion = version;
+        return this.scheduler.submit(id + '@' + version, () -> {
+            Optional<Path> fetched = findArtifact(versionDir);
+            return fetched.isPresent() ? fetched.get() : fetchArtifact(rawId, exactVersion, versionDir);
+        });
+    }
+
+    private Path fetchArtifact(String rawId, String version, Path versionDir) throws IOException {
+        Version meta = getModel(Version.class, VERSION, rawId, version);
+        HttpURLConnection connection = HttpUtils.openConnection(new URL(this.upstream
+            + String.format(DOWNLOAD, rawId, version)));
+        try {
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND)
+                throw new FileNotFoundException(rawId + '@' + version);
+
+            createDirectories(versionDir);
+            Path temp = createTempFile(versionDir, ".ore-", ".tmp");
+            try {
+                MessageDigest digest = MessageDigest.getInstance("MD5");
+                try (InputStream in = new DigestInputStream(connection.getInputStream(), digest);
+                     OutputStream out = newOutputStream(temp)) {
+                    ByteStreams.copy(in, out);
+                }
+                String md5 = BaseEncoding.base16().lowerCase().encode(digest.digest());
+                if (meta.getMd5() != null && !meta.getMd5().equalsIgnoreCase(md5))
+                    throw new IOException("upstream sent " + rawId + '@' + version + " with MD5 " + md5 + " instead of "
+                        + meta.getMd5());
+
+                String fileName = getAttachmentFileName(connection).orElse(AtomicFiles.toFileName(
+                    decode(rawId) + '-' + version) + ".jar");
+                return AtomicFiles.moveToAvailable(temp, versionDir.resolve(fileName));
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            } finally {
+                deleteIfExists(temp);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Path getDelta(String rawId, String rawFrom, Path target) throws IOException {
+        Path base = getArtifact(rawId, rawFrom);
+        String to = target.getParent().getFileName().toString();
+        String from = base.getParent().getFileName().toString();
+        Path patch = this.cacheDir.resolve(DELTAS_DIR).resolve(AtomicFiles.toFileName(decode(rawId)))
+            .resolve(from + '-' + to + PATCH_EXTENSION);
+        if (exists(patch))
+            return patch;
+
+        // Building a patch is expensive, do it once and no more than a few
+        // at a time
+        return this.scheduler.submit(patch.toString(), () -> {
+            if (exists(patch))
+                return patch;
+            createDirectories(patch.getParent());
+            Path temp = createTempFile(patch.getParent(), ".ore-", ".tmp");
+            try {
+                try (OutputStream out = newOutputStream(temp)) {
+                    DeltaPatch.create(base, target, out);
+                }
+                move(temp, patch, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return patch;
+            } finally {
+                deleteIfExists(temp);
+            }
+        });
+    }
+
+    private void sendResponse(HttpExchange exchange, Response response) throws IOException {
+        if (response.etag != null) {
+            exchange.getResponseHeaders().set("ETag", response.etag);
+            // Lets clients revalidate what they cached for the cost of the headers
+            if (response.etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                return;
+            }
+        }
+        if (response.contentType != null)
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(response.status, head || response.body.length == 0 ? -1 : response.body.length);
+        if (!head)
+            exchange.getResponseBody().write(response.body);
+    }
+
+    private void sendFile(HttpExchange exchange, Path file, @Nullable String attachmentName) throws IOException {
+        long length = size(file);
+        String etag = "\"" + length + '-' + getLastModifiedTime(file).toMillis() + "\"";
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("ETag", etag);
+        headers.set("Content-Type", "application/java-archive");
+        headers.set("Content-Disposition", "attachment; filename=\""
+            + (attachmentName != null ? attachmentName : file.getFileName()) + "\"");
+
+        // Serve a single byte range so that clients can resume and split
+        // their downloads against us like against Ore
+        long start = 0;
+        long end = length - 1;
+        int status = HttpURLConnection.HTTP_OK;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range != null && range.startsWith("bytes=") && !range.contains(",")
+            && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                String[] bounds = range.substring(6).split("-", 2);
+                if (bounds[0].isEmpty())
+                    start = Math.max(0, length - Long.parseLong(bounds[1]));
+                else {
+                    start = Long.parseLong(bounds[0]);
+                    if (!bounds[1].isEmpty())
+                        end = Math.min(end, Long.parseLong(bounds[1]));
+                }
+            } catch (NumberFormatException e) {
+                start = length;
+            }
+            if (start > end) {
+                headers.set("Content-Range", "bytes */" + length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            headers.set("Content-Range", "bytes " + start + '-' + end + '/' + length);
+            status = HttpURLConnection.HTTP_PARTIAL;
+        }
+
+        long count = end - start + 1;
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            headers.set("Content-Length", Long.toString(count));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, count);
+        try (FileChannel in = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(exchange.getResponseBody());
+            while (count > 0) {
+                long transferred = in.transferTo(start, count, out);
+                if (transferred <= 0)
+                    break;
+                start += transferred;
+                count -= transferred;
+            }
+        }
+    }
+
+    private static Optional<Path> findArtifact(Path versionDir) throws IOException {
+        if (!isDirectory(versionDir))
+            return Optional.empty();
+        try (Stream<Path> files = list(versionDir)) {
+            return files.filter(path -> path.toString().endsWith(".jar")).findFirst();
+        }
+    }
+
+    private static Optional<String> getAttachmentFileName(HttpURLConnection connection) {
+        String contentDisposition = connection.getHeaderField("Content-Disposition");
+        if (contentDisposition == null || !contentDisposition.contains("\""))
+            return Optional.empty();
+        String name = contentDisposition.substring(contentDisposition.indexOf('"') + 1,
+            contentDisposition.lastIndexOf('"'));
+        name = Paths.get(name).getFileName().toString();
+        return name.endsWith(".jar") ? Optional.of(name) : Optional.empty();
+    }
+
+    @Nullable
+    private static String getParameter(@Nullable String query, String name) {
+        if (query == null)
+            return null;
+        for (String parameter : query.split("&")) {
+            String[] parts = parameter.split("=", 2);
+            if (parts.length == 2 && parts[0].equals(name))
+                return parts[1];
+        }
+        return null;
+    }
+
+    private static String decode(String raw) throws UnsupportedEncodingException {
+        return URLDecoder.decode(raw, "UTF-8");
+    }
+
+    /**
+     * Constructs a new mirror for the specified plugin if it is enabled in
+     * its configuration.
+     *
+     * @param plugin Plugin to create mirror for
+     * @return New mirror, or null if disabled or misconfigured
+     */
+    @Nullable
+    public static OreMirror forPlugin(SpongeOrePlugin plugin) {
+        ConfigurationNode config = plugin.getConfigRoot();
+        ConfigurationNode node = config.getNode("mirror");
+        if (!node.getNode("enabled").getBoolean())
+            return null;
+        try {
+            TypeToken<URL> urlToken = TypeToken.of(URL.class);
+            return new OreMirror(
+                node.getNode("upstreamUrl").getValue(urlToken, config.getNode("repositoryUrl").getValue(urlToken)),
+                node.getNode("directory").getValue(TypeToken.of(Path.class), Paths.get("mirror")),
+                new InetSocketAddress(node.getNode("bindAddress").getString("127.0.0.1"),
+                    node.getNode("port").getInt(8765)),
+                node.getNode("metadataTtl").getLong(300),
+                node.getNode("upstreamConnections").getInt(4),
+                node.getNode("maxConnections").getInt(32),
+                node.getNode("connectionQueue").getInt(64),
+                plugin.log);
+        } catch (ObjectMappingException e) {
+            plugin.log.error("A fatal error occurred while loading your Ore mirror settings.", e);
+            return null;
+        }
+    }
+
+    /**
+     * A response from upstream, kept as is.
+     */
+    private static final class Response {
+
+        private final int status;
+        @Nullable private final String contentType;
+        private final byte[] body;
+        @Nullable private final String etag;
+
+        Response(int status, @Nullable String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = status == HttpURLConnection.HTTP_OK
+                ? "\"" + Hashing.sha256().hashBytes(body).toString().substring(0, 32) + '"' : null;
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isWritable;
+import static java.nio.file.Files.readAllBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stages and installs plugin files taken from an {@link ArtifactCache} the
+ * way updates are, checking that the read-only files it links in can still
+ * be moved into place. Only meaningful for a user that cannot write to
+ * read-only files, so it is skipped when run as root.
+ */
+public final class ArtifactCacheTest {
+
+    @Test
+    public void installsReadOnlyCachedFile() throws IOException {
+        Path dir = createTempDirectory("ore-cache");
+        try {
+            Path jar = TestJars.plugin(dir.resolve("source.jar"), "test", "1.0", 10, 1000, 1);
+            ArtifactCache cache = new ArtifactCache(dir.resolve("cache"));
+            AtomicInteger loads = new AtomicInteger();
+            ArtifactCache.Loader loader = entryDir -> {
+                loads.incrementAndGet();
+                return copy(jar, entryDir.resolve("test-1.0.jar"));
+            };
+
+            Path cached = cache.computeIfAbsent(TestJars.md5(jar), loader);
+            assumeFalse("read-only files are writable for this user", isWritable(cached));
+            assertEquals(cached, cache.computeIfAbsent(TestJars.md5(jar), loader));
+            assertEquals(1, loads.get());
+
+            // Staged as an update, then installed on the next start
+            Path staged = AtomicFiles.linkToAvailable(cached, dir.resolve("updates").resolve("test-1.0.jar"));
+            Path installed = AtomicFiles.moveToAvailable(staged, dir.resolve("mods").resolve("test-1.0.jar"));
+            assertFalse("staged file left behind", exists(staged));
+            assertTrue("cached file removed", exists(cached));
+            assertArrayEquals(readAllBytes(jar), readAllBytes(installed));
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+}
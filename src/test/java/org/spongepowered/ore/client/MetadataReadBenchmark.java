@@ -0,0 +1,170 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.newDirectoryStream;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Measures how long reading the mcmod.info of a directory of synthetic
+ * plugin JAR files takes through a {@link JarFile} opened and closed for
+ * each file, which is what {@link PluginMetadataScanner} does, against
+ * looking the entry up in the central directory by hand and reading only
+ * it, which is what it once did to avoid opening a {@link JarFile} at all.
+ *
+ * <p>The scanner only reads files its index has no entry for, so this is
+ * the cost of a first scan, weighed against keeping a zip parser of our own.
+ * Usage: {@code MetadataReadBenchmark [jars] [entries per jar]}. Runs on a
+ * single thread with the files in the page cache, and reports the median of
+ * the rounds.</p>
+ */
+public final class MetadataReadBenchmark {
+
+    private static final int ROUNDS = 30;
+    private static final String METADATA = "mcmod.info";
+
+    public static void main(String[] args) throws Exception {
+        int jars = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Path dir = createTempDirectory("ore-metadata");
+        try {
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < jars; i++) {
+                Path file = dir.resolve("plugin" + i + ".jar");
+                files.add(TestJars.plugin(file, "plugin" + i, "1." + i, entries, 2000, i));
+            }
+            System.out.println(jars + " jars of " + entries + " entries in " + dir);
+
+            for (Path file : files) {
+                if (!Arrays.equals(readJarFile(file), readCentralDirectory(file)))
+                    throw new IOException("readers disagree on " + file);
+            }
+            // Warm up the JIT and the page cache
+            for (int i = 0; i < 5; i++) {
+                readAll(files, false);
+                readAll(files, true);
+            }
+            System.out.printf("JarFile, closed:   %.1fms%n", median(files, false) / 1e6);
+            System.out.printf("central directory: %.1fms%n", median(files, true) / 1e6);
+        } finally {
+            try (DirectoryStream<Path> files = newDirectoryStream(dir)) {
+                for (Path file : files)
+                    delete(file);
+            }
+            delete(dir);
+        }
+    }
+
+    private static long median(List<Path> files, boolean centralDirectory) throws IOException {
+        long[] times = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            readAll(files, centralDirectory);
+            times[round] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+
+    private static void readAll(List<Path> files, boolean centralDirectory) throws IOException {
+        for (Path file : files) {
+            byte[] metadata = centralDirectory ? readCentralDirectory(file) : readJarFile(file);
+            if (metadata == null)
+                throw new IOException("no metadata in " + file);
+        }
+    }
+
+    private static byte[] readJarFile(Path file) throws IOException {
+        try (JarFile jar = new JarFile(file.toFile())) {
+            ZipEntry entry = jar.getEntry(METADATA);
+            if (entry == null)
+                return null;
+            try (InputStream in = jar.getInputStream(entry)) {
+                return ByteStreams.toByteArray(in);
+            }
+        }
+    }
+
+    private static byte[] readCentralDirectory(Path file) throws IOException {
+        // Only handles what TestJars writes: no archive comment, no Zip64
+        // and stored or deflated entries
+        try (RandomAccessFile zip = new RandomAccessFile(file.toFile(), "r")) {
+            ByteBuffer end = readFully(zip, zip.length() - 22, 22);
+            if (end.getInt(0) != 0x06054b50)
+                throw new ZipException("no end record in " + file);
+            ByteBuffer central = readFully(zip, end.getInt(16) & 0xffffffffL, end.getInt(12));
+            byte[] name = METADATA.getBytes(StandardCharsets.UTF_8);
+            while (central.remaining() >= 46) {
+                int start = central.position();
+                int nameLength = central.getShort(start + 28) & 0xffff;
+                central.position(start + 46 + nameLength + (central.getShort(start + 30) & 0xffff)
+                    + (central.getShort(start + 32) & 0xffff));
+                if (nameLength != name.length)
+                    continue;
+                byte[] entryName = new byte[nameLength];
+                ((ByteBuffer) central.duplicate().position(start + 46)).get(entryName);
+                if (!Arrays.equals(entryName, name))
+                    continue;
+
+                int method = central.getShort(start + 10) & 0xffff;
+                int compressedSize = central.getInt(start + 20);
+                int size = central.getInt(start + 24);
+                long localOffset = central.getInt(start + 42) & 0xffffffffL;
+                ByteBuffer local = readFully(zip, localOffset, 30);
+                long dataOffset = localOffset + 30 + (local.getShort(26) & 0xffff) + (local.getShort(28) & 0xffff);
+                byte[] data = readFully(zip, dataOffset, compressedSize).array();
+                byte[] contents = method == ZipEntry.STORED ? data : inflate(data, size);
+                CRC32 crc = new CRC32();
+                crc.update(contents);
+                if ((int) crc.getValue() != central.getInt(start + 16))
+                    throw new ZipException("corrupt " + METADATA + " in " + file);
+                return contents;
+            }
+            return null;
+        }
+    }
+
+    private static ByteBuffer readFully(RandomAccessFile file, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        file.seek(position);
+        file.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] inflate(byte[] compressed, int size) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] contents = new byte[size];
+            int length = 0;
+            while (length < size && !inflater.finished())
+                length += inflater.inflate(contents, length, size - length);
+            return contents;
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
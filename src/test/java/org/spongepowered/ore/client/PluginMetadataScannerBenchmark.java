@@ -0,0 +1,77 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.newDirectoryStream;
+
+import org.spongepowered.plugin.meta.PluginMetadata;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long {@link PluginMetadataScanner} takes to read the metadata
+ * of a directory of synthetic plugin JAR files at different parallelism
+ * levels, without an index so that every file is read.
+ *
+ * <p>Usage: {@code PluginMetadataScannerBenchmark [jars] [entries per jar]
+ * [parallelism...]}. Files are read from the page cache after the first
+ * round, so this measures the cost of opening and parsing them rather than
+ * that of the disk.</p>
+ */
+public final class PluginMetadataScannerBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int jars = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int[] levels = {1, 2, 4, 8, PluginMetadataScanner.DEFAULT_PARALLELISM};
+        if (args.length > 2) {
+            levels = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                levels[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        Path dir = createTempDirectory("ore-scan");
+        try {
+            for (int i = 0; i < jars; i++)
+                TestJars.plugin(dir.resolve("plugin" + i + ".jar"), "plugin" + i, "1." + i, entries, 2000, i);
+            System.out.println(jars + " jars of " + entries + " entries in " + dir);
+
+            // Warm up the JIT and the page cache
+            scan(dir, 1);
+            for (int parallelism : levels) {
+                long best = Long.MAX_VALUE;
+                long total = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    scan(dir, parallelism);
+                    long elapsed = System.nanoTime() - start;
+                    best = Math.min(best, elapsed);
+                    total += elapsed;
+                }
+                System.out.printf("parallelism=%d best=%.1fms mean=%.1fms%n", parallelism, best / 1e6,
+                    total / 1e6 / ROUNDS);
+            }
+        } finally {
+            try (DirectoryStream<Path> files = newDirectoryStream(dir)) {
+                for (Path file : files)
+                    delete(file);
+            }
+            delete(dir);
+        }
+    }
+
+    private static void scan(Path dir, int parallelism) throws IOException {
+        Map<Path, List<PluginMetadata>> metadata = new PluginMetadataScanner(dir, parallelism).scan();
+        for (List<PluginMetadata> plugins : metadata.values()) {
+            if (plugins.size() != 1)
+                throw new IOException("expected one plugin per file, got " + plugins);
+        }
+    }
+
+}
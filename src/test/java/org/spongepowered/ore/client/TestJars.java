@@ -0,0 +1,86 @@
+package org.spongepowered.ore.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic plugin JAR files for the tests and benchmarks, and
+ * cleans up after them.
+ */
+public final class TestJars {
+
+    private TestJars() {
+    }
+
+    /**
+     * Writes a plugin JAR file with an mcmod.info for the specified plugin
+     * and the specified amount of class-like entries. Entries are made of
+     * pseudo-random bytes from the specified seed, so two files written with
+     * the same seed and entry count differ only in their metadata and marker.
+     *
+     * @param file File to write
+     * @param pluginId Plugin ID
+     * @param version Plugin version
+     * @param entries Amount of filler entries
+     * @param entrySize Size of each filler entry in bytes
+     * @param seed Seed of the filler entries
+     * @return Written file
+     * @throws IOException
+     */
+    public static Path plugin(Path file, String pluginId, String version, int entries, int entrySize, long seed)
+        throws IOException {
+        Random random = new Random(seed);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+            out.putNextEntry(new JarEntry("mcmod.info"));
+            out.write(("[{\"modid\":\"" + pluginId + "\",\"version\":\"" + version + "\"}]").getBytes(UTF_8));
+            for (int i = 0; i < entries; i++) {
+                out.putNextEntry(new JarEntry("com/example/" + pluginId + "/C" + i + ".class"));
+                byte[] bytes = new byte[entrySize];
+                random.nextBytes(bytes);
+                // Compressible like real class files
+                for (int j = 0; j < bytes.length; j += 3)
+                    bytes[j] = 0;
+                out.write(bytes);
+            }
+            out.putNextEntry(new JarEntry("com/example/" + pluginId + "/Version.class"));
+            out.write(version.getBytes(UTF_8));
+        }
+        return file;
+    }
+
+    /**
+     * Returns the hex encoded MD5 hash of the specified file.
+     *
+     * @param file File to hash
+     * @return MD5 hash
+     * @throws IOException
+     */
+    @SuppressWarnings("deprecation")
+    public static String md5(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.md5()).toString();
+    }
+
+    /**
+     * Deletes the specified directory and everything in it.
+     *
+     * @param dir Directory to delete
+     * @throws IOException
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(file);
+        }
+    }
+
+}
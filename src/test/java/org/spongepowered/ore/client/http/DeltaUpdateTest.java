@@ -0,0 +1,80 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.readAllBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.spongepowered.ore.client.ScannedPluginEnvironment;
+import org.spongepowered.ore.client.SpongeOreClient;
+import org.spongepowered.ore.client.TestJars;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Updates an installed plugin from a {@link StubRepository} with delta
+ * updates enabled, checking that only the patch is transferred and that a
+ * patch that does not apply falls back to the full download.
+ */
+public final class DeltaUpdateTest {
+
+    @Test
+    public void transfersOnlyPatch() throws Exception {
+        Path dir = createTempDirectory("ore-delta");
+        try (StubRepository repository = repository(dir)) {
+            update(repository, dir);
+            assertEquals("patches", 1, repository.getDeltas());
+            assertEquals("full downloads", 0, repository.getDownloads());
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void fallsBackToFullDownload() throws Exception {
+        Path dir = createTempDirectory("ore-delta");
+        try (StubRepository repository = repository(dir)) {
+            repository.setCorruptDeltas(true);
+            update(repository, dir);
+            assertEquals("patches", 1, repository.getDeltas());
+            assertEquals("full downloads", 1, repository.getDownloads());
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+    private static StubRepository repository(Path dir) throws IOException {
+        StubRepository repository = new StubRepository("test");
+        repository.addVersion("1.0", TestJars.plugin(dir.resolve("v1.jar"), "test", "1.0", 200, 20000, 5));
+        repository.addVersion("2.0", TestJars.plugin(dir.resolve("v2.jar"), "test", "2.0", 200, 20000, 5));
+        return repository;
+    }
+
+    private static void update(StubRepository repository, Path dir) throws Exception {
+        Path mods = createDirectories(dir.resolve("mods"));
+        Files.copy(dir.resolve("v1.jar"), mods.resolve("test-1.0.jar"));
+
+        TransferSettings settings = new TransferSettings(Long.MAX_VALUE, 1, BandwidthLimiter.UNLIMITED,
+            new DownloadScheduler(4, 2), true);
+        SpongeOreClient client = new SpongeOreClient(RepositoryPool.of(repository.getUrl()), mods,
+            dir.resolve("updates"), dir.resolve("downloads"), new HashSet<>(), settings, null, null, 0, null,
+            ScannedPluginEnvironment.scan(mods, null));
+        client.updatePlugin("test", "recommended");
+
+        List<Path> updates;
+        try (Stream<Path> files = Files.list(dir.resolve("updates"))) {
+            updates = files.collect(Collectors.toList());
+        }
+        assertEquals("staged updates " + updates, 1, updates.size());
+        assertArrayEquals("staged update differs", readAllBytes(dir.resolve("v2.jar")), readAllBytes(updates.get(0)));
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempDirectory;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spongepowered.ore.client.Routes;
+import org.spongepowered.ore.client.ScannedPluginEnvironment;
+import org.spongepowered.ore.client.SpongeOreClient;
+import org.spongepowered.ore.client.TestJars;
+import org.spongepowered.ore.client.model.project.Project;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Looks up a project over and over from two {@link StubRepository} that are
+ * each slow for one request in twenty, once with hedging disabled and once
+ * with slow lookups hedged to the other repository, checking that hedging
+ * brings the tail latency down.
+ */
+public final class HedgingTest {
+
+    private static final int LOOKUPS = 300;
+
+    @Test
+    public void lowersTailLatency() throws Exception {
+        Path dir = createTempDirectory("ore-hedging");
+        try (StubRepository primary = new StubRepository("test");
+             StubRepository secondary = new StubRepository("test")) {
+            Path jar = TestJars.plugin(dir.resolve("v1.jar"), "test", "1.0", 1, 100, 1);
+            Path mods = createDirectories(dir.resolve("mods"));
+            primary.addVersion("1.0", jar);
+            secondary.addVersion("1.0", jar);
+            Random primaryRandom = new Random(1);
+            Random secondaryRandom = new Random(2);
+            primary.setLatency(() -> primaryRandom.nextInt(20) == 0 ? 300 : 5);
+            secondary.setLatency(() -> secondaryRandom.nextInt(20) == 0 ? 300 : 5);
+
+            long[] plain = lookUp(primary, secondary, RequestHedger.DISABLED, mods);
+            RequestHedger hedger = new RequestHedger(90, 20);
+            long[] hedged = lookUp(primary, secondary, hedger, mods);
+            assertTrue("expected hedging to lower the p99 latency, was " + percentile(plain, 99) + "ms and "
+                + percentile(hedged, 99) + "ms hedged", percentile(hedged, 99) < percentile(plain, 99));
+            assertTrue("expected some hedges to win", hedger.getHedgeWins() > 0);
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+    private static long[] lookUp(StubRepository primary, StubRepository secondary, RequestHedger hedger, Path mods)
+        throws IOException {
+        RepositoryPool pool = new RepositoryPool(Arrays.asList(primary.getUrl(), secondary.getUrl()), 1000, hedger);
+        SpongeOreClient client = new SpongeOreClient(pool, mods, mods.resolveSibling("updates"),
+            mods.resolveSibling("downloads"), new HashSet<>(), TransferSettings.DEFAULT, null, null, 0, null,
+            ScannedPluginEnvironment.scan(mods, null));
+
+        long[] millis = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long start = System.nanoTime();
+            try (OreConnection connection = OreConnection.open(client, Routes.PROJECT, "test")) {
+                assertNotNull("expected a project", connection.read(Project.class));
+            }
+            millis[i] = (System.nanoTime() - start) / 1000000;
+        }
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)];
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.readAllBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.spongepowered.ore.client.Routes;
+import org.spongepowered.ore.client.ScannedPluginEnvironment;
+import org.spongepowered.ore.client.SpongeOreClient;
+import org.spongepowered.ore.client.TestJars;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Spreads a plugin over a dead, a slow and a fast {@link StubRepository},
+ * checking that probing prefers the fast one, that downloads fail over to
+ * the slow one while the fast one is broken, and that the fast one is
+ * preferred again once it recovers and its cooldown ends.
+ */
+public final class RepositoryFailoverTest {
+
+    private static final long COOLDOWN = 2000;
+
+    @Test
+    public void ranksByLatency() throws Exception {
+        Path dir = createTempDirectory("ore-failover");
+        try (StubRepository slow = repository(dir, 150); StubRepository fast = repository(dir, 10)) {
+            URL dead = deadUrl();
+            RepositoryPool pool = new RepositoryPool(Arrays.asList(dead, slow.getUrl(), fast.getUrl()), COOLDOWN,
+                RequestHedger.DISABLED);
+            pool.probe(Routes.PROJECT_LIST);
+            assertEquals(fast.getUrl(), pool.getRanked().get(0).getUrl());
+            assertEquals(slow.getUrl(), pool.getRanked().get(1).getUrl());
+            assertEquals(dead, pool.getRanked().get(2).getUrl());
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void failsOverAndRecovers() throws Exception {
+        Path dir = createTempDirectory("ore-failover");
+        try (StubRepository slow = repository(dir, 150); StubRepository fast = repository(dir, 10)) {
+            RepositoryPool pool = new RepositoryPool(Arrays.asList(deadUrl(), slow.getUrl(), fast.getUrl()),
+                COOLDOWN, RequestHedger.DISABLED);
+            pool.probe(Routes.PROJECT_LIST);
+
+            Path mods = createDirectories(dir.resolve("mods"));
+            Path downloads = dir.resolve("downloads");
+            TransferSettings settings = new TransferSettings(Long.MAX_VALUE, 1, BandwidthLimiter.UNLIMITED,
+                new DownloadScheduler(4, 2), false);
+            SpongeOreClient client = new SpongeOreClient(pool, mods, dir.resolve("updates"), downloads,
+                new HashSet<>(), settings, null, null, 0, null, ScannedPluginEnvironment.scan(mods, null));
+
+            client.downloadPlugin("test", "recommended");
+            assertDownloaded(downloads, dir.resolve("v2.jar"));
+            assertEquals("downloads from the fast repository", 1, fast.getDownloads());
+            assertEquals("downloads from the slow repository", 0, slow.getDownloads());
+
+            fast.setBroken(true);
+            deleteAll(downloads);
+            client.downloadPlugin("test", "2.0");
+            assertDownloaded(downloads, dir.resolve("v2.jar"));
+            assertEquals("downloads from the slow repository", 1, slow.getDownloads());
+            assertEquals(slow.getUrl(), pool.getPreferred().getUrl());
+
+            fast.setBroken(false);
+            StubRepository.sleep(COOLDOWN + 100);
+            pool.probe(Routes.PROJECT_LIST);
+            assertEquals(fast.getUrl(), pool.getPreferred().getUrl());
+        } finally {
+            TestJars.deleteRecursively(dir);
+        }
+    }
+
+    private static StubRepository repository(Path dir, long latency) throws IOException {
+        Path jar = dir.resolve("v2.jar");
+        if (!Files.exists(jar))
+            TestJars.plugin(jar, "test", "2.0", 100, 20000, 2);
+        StubRepository repository = new StubRepository("test");
+        repository.addVersion("2.0", jar);
+        repository.setLatency(() -> latency);
+        return repository;
+    }
+
+    private static URL deadUrl() throws IOException {
+        // Nothing listens on a port once its socket is closed
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return new URL("http://127.0.0.1:" + socket.getLocalPort());
+        }
+    }
+
+    private static void assertDownloaded(Path downloads, Path expected) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(downloads)) {
+            files = list.collect(Collectors.toList());
+        }
+        assertEquals("downloads " + files, 1, files.size());
+        assertArrayEquals("download differs", readAllBytes(expected), readAllBytes(files.get(0)));
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) list::iterator)
+                Files.delete(file);
+        }
+    }
+
+}
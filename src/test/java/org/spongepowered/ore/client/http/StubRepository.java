@@ -0,0 +1,229 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.spongepowered.ore.client.TestJars;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for an Ore repository serving the versions of a single plugin
+ * on a local port. Its latency can be varied per request and it can be made
+ * to fail, so that the tests in this package can exercise delta updates,
+ * failover between mirrors and hedging without a real repository.
+ */
+final class StubRepository implements Closeable {
+
+    static {
+        // Otherwise small answers wait on delayed ACKs, hiding the latency
+        // set for them
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final Pattern ROUTE =
+        Pattern.compile("/api/projects/([^/]+)(?:/versions/([^/]+)(/download|/delta)?)?");
+
+    private final String pluginId;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Path> versions = new ConcurrentHashMap<>();
+    private volatile String recommended;
+    private volatile LongSupplier latency = () -> 0;
+    private volatile boolean broken;
+    private volatile boolean corruptDeltas;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger deltas = new AtomicInteger();
+
+    /**
+     * Starts a new repository for the specified plugin.
+     *
+     * @param pluginId Plugin ID
+     * @throws IOException
+     */
+    StubRepository(String pluginId) throws IOException {
+        this.pluginId = pluginId;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("Stub Repository #%d")
+            .setDaemon(true)
+            .build());
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        this.server.start();
+    }
+
+    URL getUrl() {
+        try {
+            return new URL("http://127.0.0.1:" + this.server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Serves the specified file as a version of the plugin, the last one
+     * added being the recommended version.
+     *
+     * @param version Plugin version
+     * @param jar Plugin file
+     */
+    void addVersion(String version, Path jar) {
+        this.versions.put(version, jar);
+        this.recommended = version;
+    }
+
+    /**
+     * Delays every answer by the milliseconds the specified supplier returns
+     * for it.
+     *
+     * @param latency Latency per request
+     */
+    void setLatency(LongSupplier latency) {
+        this.latency = latency;
+    }
+
+    void setBroken(boolean broken) {
+        this.broken = broken;
+    }
+
+    void setCorruptDeltas(boolean corruptDeltas) {
+        this.corruptDeltas = corruptDeltas;
+    }
+
+    int getRequests() {
+        return this.requests.get();
+    }
+
+    int getDownloads() {
+        return this.downloads.get();
+    }
+
+    int getDeltas() {
+        return this.deltas.get();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        try {
+            Thread.sleep(this.latency.getAsLong());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (this.broken) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+            return;
+        }
+
+        Matcher matcher = ROUTE.matcher(exchange.getRequestURI().getPath());
+        if (!matcher.matches() || !matcher.group(1).equals(this.pluginId)) {
+            // Also what probes of the project list get, which is enough
+            send(exchange, HttpURLConnection.HTTP_OK, "[]".getBytes(UTF_8));
+            return;
+        }
+        String version = matcher.group(2);
+        if (version != null && version.equals("recommended"))
+            version = this.recommended;
+        Path jar = version != null ? this.versions.get(version) : null;
+        if (version != null && jar == null) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+            return;
+        }
+
+        String action = matcher.group(3);
+        if (action == null) {
+            String versionJson = toJson(version != null ? version : this.recommended);
+            send(exchange, HttpURLConnection.HTTP_OK, (version != null ? versionJson
+                : "{\"pluginId\":\"" + this.pluginId + "\",\"recommended\":" + versionJson + "}").getBytes(UTF_8));
+            return;
+        }
+
+        String fileName = this.pluginId + '-' + version + ".jar";
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        if (action.equals("/download")) {
+            this.downloads.incrementAndGet();
+            send(exchange, HttpURLConnection.HTTP_OK, Files.readAllBytes(jar));
+            return;
+        }
+
+        // Patch from the version in the query string
+        String query = exchange.getRequestURI().getQuery();
+        Path base = query != null && query.startsWith("from=") ? this.versions.get(query.substring(5)) : null;
+        if (base == null) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+            return;
+        }
+        this.deltas.incrementAndGet();
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        DeltaPatch.create(base, jar, patch);
+        byte[] body = patch.toByteArray();
+        if (this.corruptDeltas)
+            body[body.length / 2] ^= 0x55;
+        send(exchange, HttpURLConnection.HTTP_OK, body);
+    }
+
+    private String toJson(String version) throws IOException {
+        Path jar = this.versions.get(version);
+        return "{\"name\":\"" + version + "\",\"pluginId\":\"" + this.pluginId + "\",\"fileSize\":" + Files.size(jar)
+            + ",\"md5\":\"" + TestJars.md5(jar) + "\"}";
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Waits for the specified amount of milliseconds, for tests that need
+     * time to pass such as for a cooldown to end.
+     *
+     * @param millis Milliseconds to wait
+     */
+    static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.spongepowered.ore.client.http;
+
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.delete;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+/**
+ * Compares the two ways a download segment can be written to its file: the
+ * buffered copy {@link SegmentedTransfer} uses, reading into a heap array
+ * that is hashed and written at the segment's offset, and
+ * {@link FileChannel#transferFrom} from a channel around the connection's
+ * stream, hashing the buffers it reads into. Both read the same file from a
+ * local server over HTTP, so this measures the cost on our side rather than
+ * that of the network.
+ *
+ * <p>Usage: {@code TransferBenchmark [MiB]}. Reports the wall time, and the
+ * CPU time and heap allocated by the copying thread per MiB.</p>
+ */
+public final class TransferBenchmark {
+
+    private static final int ROUNDS = 10;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long CHUNK = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int mebibytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        byte[] body = new byte[mebibytes << 20];
+        new Random(1).nextBytes(body);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/plugin.jar");
+        Path file = createTempFile("ore-transfer", ".jar");
+        try {
+            // Warm up the JIT
+            for (int i = 0; i < 3; i++) {
+                measure(url, file, body.length, false);
+                measure(url, file, body.length, true);
+            }
+            report("buffered", url, file, body.length, false);
+            report("channel", url, file, body.length, true);
+        } finally {
+            server.stop(0);
+            delete(file);
+        }
+    }
+
+    private static void report(String name, URL url, Path file, int length, boolean channel) throws Exception {
+        long best = Long.MAX_VALUE;
+        long[] total = new long[3];
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] measured = measure(url, file, length, channel);
+            best = Math.min(best, measured[0]);
+            for (int i = 0; i < total.length; i++)
+                total[i] += measured[i];
+        }
+        double mebibytes = (double) length * ROUNDS / (1 << 20);
+        System.out.printf("%s best=%.1fms mean=%.1fms cpu=%.3fms/MiB heap=%.1fKiB/MiB%n", name, best / 1e6,
+            total[0] / 1e6 / ROUNDS, total[1] / 1e6 / mebibytes, total[2] / 1024.0 / mebibytes);
+    }
+
+    private static long[] measure(URL url, Path file, int length, boolean channel) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long start = System.nanoTime();
+        long cpu = threads.getCurrentThreadCpuTime();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream in = connection.getInputStream();
+             RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.setLength(length);
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            if (channel)
+                transfer(in, out.getChannel(), length, digest);
+            else
+                copy(in, out.getChannel(), length, digest);
+        } finally {
+            connection.disconnect();
+        }
+        return new long[] {System.nanoTime() - start, threads.getCurrentThreadCpuTime() - cpu,
+            threads.getThreadAllocatedBytes(thread) - allocated};
+    }
+
+    private static void copy(InputStream in, FileChannel out, long length, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        long position = 0;
+        while (position < length) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - position));
+            if (read == -1)
+                throw new EOFException();
+            wrapped.clear();
+            wrapped.limit(read);
+            while (wrapped.hasRemaining())
+                position += out.write(wrapped, position);
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static void transfer(InputStream in, FileChannel out, long length, MessageDigest digest)
+        throws IOException {
+        ReadableByteChannel hashing = new HashingChannel(Channels.newChannel(in), digest);
+        long position = 0;
+        while (position < length) {
+            long transferred = out.transferFrom(hashing, position, Math.min(CHUNK, length - position));
+            if (transferred <= 0)
+                throw new EOFException();
+            position += transferred;
+        }
+    }
+
+    /**
+     * Hashes the bytes read into each buffer before the file channel writes
+     * them, like a download has to.
+     */
+    private static final class HashingChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+        private final MessageDigest digest;
+
+        HashingChannel(ReadableByteChannel source, MessageDigest digest) {
+            this.source = source;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int read = this.source.read(dst);
+            if (read > 0) {
+                ByteBuffer bytes = dst.duplicate();
+                bytes.flip();
+                bytes.position(start);
+                this.digest.update(bytes);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return this.source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.source.close();
+        }
+
+    }
+
+}